@@ -8,6 +8,7 @@ import org.cryptomator.linux.autostart.FreedesktopAutoStartService;
 import org.cryptomator.linux.keychain.GnomeKeyringKeychainAccess;
 import org.cryptomator.linux.keychain.KDEWalletKeychainAccess;
 import org.cryptomator.linux.keychain.SecretServiceKeychainAccess;
+import org.cryptomator.linux.quickaccess.CompositeQuickAccess;
 import org.cryptomator.linux.quickaccess.DolphinPlaces;
 import org.cryptomator.linux.quickaccess.NautilusBookmarks;
 import org.cryptomator.linux.revealpath.DBusSendRevealPathService;
@@ -27,11 +28,14 @@ module org.cryptomator.integrations.linux {
 	requires java.net.http;
 	requires com.fasterxml.jackson.databind;
 
+	exports org.cryptomator.linux.keychain to org.cryptomator.desktop; // AsyncKeychainAccess
+	exports org.cryptomator.linux.quickaccess to org.cryptomator.desktop; // batched and bulk operations, reconciling
+
 	provides AutoStartProvider with FreedesktopAutoStartService;
 	provides KeychainAccessProvider with SecretServiceKeychainAccess, GnomeKeyringKeychainAccess, KDEWalletKeychainAccess;
 	provides RevealPathService with DBusSendRevealPathService;
 	provides TrayMenuController with AppindicatorTrayMenuController;
-	provides QuickAccessService with NautilusBookmarks, DolphinPlaces;
+	provides QuickAccessService with NautilusBookmarks, DolphinPlaces, CompositeQuickAccess;
 	provides UpdateMechanism with FlatpakUpdater;
 
 	opens org.cryptomator.linux.tray to org.cryptomator.integrations.api;
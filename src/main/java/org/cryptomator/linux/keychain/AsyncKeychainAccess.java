@@ -0,0 +1,207 @@
+package org.cryptomator.linux.keychain;
+
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.cryptomator.integrations.keychain.KeychainAccessProvider;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade for a {@link KeychainAccessProvider}.
+ * <p>
+ * Every call is dispatched to a virtual thread, so callers (e.g. the JavaFX application thread) never block on D-Bus.
+ * The number of calls running against the backend at the same time is bounded, further calls are queued.
+ * Concurrent loads of the same vault key are coalesced into a single call to the backend.
+ */
+public class AsyncKeychainAccess implements AutoCloseable {
+
+	private final KeychainAccessProvider delegate;
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	// vault key -> callers waiting for the load in flight
+	private final ConcurrentMap<String, List<CompletableFuture<char[]>>> pendingLoads = new ConcurrentHashMap<>();
+
+	/**
+	 * @param delegate the keychain backend
+	 * @param maxConcurrentCalls maximum number of calls running against the backend at the same time
+	 */
+	public AsyncKeychainAccess(KeychainAccessProvider delegate, int maxConcurrentCalls) {
+		if (maxConcurrentCalls < 1) {
+			throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+		}
+		this.delegate = delegate;
+		this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("keychain-" + delegate.getClass().getSimpleName() + "-", 0).factory());
+		this.permits = new Semaphore(maxConcurrentCalls, true);
+	}
+
+	/**
+	 * Loads a passphrase. If a load for the same key is already in flight, its result is shared.
+	 * <p>
+	 * Every caller gets its own copy of the passphrase, the one returned by the backend is overwritten with zeros as soon as all copies are made.
+	 *
+	 * @param key the vault key
+	 * @return a future completing with the passphrase (a separate copy for every caller) or {@code null} if none is stored
+	 * @see KeychainAccessProvider#loadPassphrase(String)
+	 */
+	public CompletableFuture<char[]> loadPassphrase(String key) {
+		var caller = new CompletableFuture<char[]>();
+		var fresh = new ArrayList<CompletableFuture<char[]>>();
+		var callers = pendingLoads.compute(key, (k, waiting) -> {
+			var list = waiting == null ? fresh : waiting;
+			list.add(caller);
+			return list;
+		});
+		if (callers == fresh) { // first caller, loads on behalf of all
+			var loaded = new CompletableFuture<char[]>();
+			loaded.whenComplete((passphrase, exception) -> handOut(key, passphrase, exception));
+			dispatch(() -> delegate.loadPassphrase(key), loaded);
+		}
+		return caller;
+	}
+
+	private void handOut(String key, char[] passphrase, Throwable exception) {
+		var callers = pendingLoads.remove(key); // no caller can join anymore, later ones start a new load
+		if (exception != null) {
+			callers.forEach(caller -> caller.completeExceptionally(exception));
+			return;
+		}
+		var copies = new ArrayList<char[]>(callers.size());
+		try {
+			for (int i = 0; i < callers.size(); i++) {
+				copies.add(passphrase == null ? null : passphrase.clone());
+			}
+		} finally {
+			if (passphrase != null) {
+				Arrays.fill(passphrase, '\0'); // before completing, so callers never observe the shared array
+			}
+		}
+		for (int i = 0; i < callers.size(); i++) {
+			callers.get(i).complete(copies.get(i));
+		}
+	}
+
+	/**
+	 * @see KeychainAccessProvider#storePassphrase(String, String, CharSequence)
+	 */
+	public CompletableFuture<Void> storePassphrase(String key, String displayName, CharSequence passphrase) {
+		var copy = copyOf(passphrase); // the caller might destroy the passphrase as soon as we return
+		var future = new CompletableFuture<Void>();
+		dispatch(() -> {
+			try {
+				delegate.storePassphrase(key, displayName, CharBuffer.wrap(copy));
+				return null;
+			} finally {
+				Arrays.fill(copy, '\0');
+			}
+		}, future);
+		return future;
+	}
+
+	/**
+	 * @see KeychainAccessProvider#changePassphrase(String, String, CharSequence)
+	 */
+	public CompletableFuture<Void> changePassphrase(String key, String displayName, CharSequence passphrase) {
+		var copy = copyOf(passphrase);
+		var future = new CompletableFuture<Void>();
+		dispatch(() -> {
+			try {
+				delegate.changePassphrase(key, displayName, CharBuffer.wrap(copy));
+				return null;
+			} finally {
+				Arrays.fill(copy, '\0');
+			}
+		}, future);
+		return future;
+	}
+
+	/**
+	 * @see KeychainAccessProvider#deletePassphrase(String)
+	 */
+	public CompletableFuture<Void> deletePassphrase(String key) {
+		var future = new CompletableFuture<Void>();
+		dispatch(() -> {
+			delegate.deletePassphrase(key);
+			return null;
+		}, future);
+		return future;
+	}
+
+	/**
+	 * @return Number of calls waiting for a free slot
+	 */
+	public int getQueueDepth() {
+		return queued.get();
+	}
+
+	/**
+	 * @return Number of calls currently running against the backend
+	 */
+	public int getRunningCalls() {
+		return running.get();
+	}
+
+	/**
+	 * Stops accepting new calls. Already dispatched calls are still completed.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	private <T> void dispatch(KeychainCall<T> call, CompletableFuture<T> future) {
+		queued.incrementAndGet();
+		try {
+			executor.execute(() -> run(call, future));
+		} catch (RejectedExecutionException e) {
+			queued.decrementAndGet();
+			future.completeExceptionally(e);
+		}
+	}
+
+	private <T> void run(KeychainCall<T> call, CompletableFuture<T> future) {
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			queued.decrementAndGet();
+			future.completeExceptionally(e);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		queued.decrementAndGet();
+		running.incrementAndGet();
+		try {
+			future.complete(call.call());
+		} catch (KeychainAccessException | RuntimeException e) {
+			future.completeExceptionally(e);
+		} finally {
+			running.decrementAndGet();
+			permits.release();
+		}
+	}
+
+	private static char[] copyOf(CharSequence chars) {
+		var copy = new char[chars.length()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = chars.charAt(i);
+		}
+		return copy;
+	}
+
+	@FunctionalInterface
+	private interface KeychainCall<T> {
+
+		T call() throws KeychainAccessException;
+	}
+}
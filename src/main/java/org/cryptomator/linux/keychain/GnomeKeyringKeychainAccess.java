@@ -6,12 +6,22 @@ import org.cryptomator.integrations.common.OperatingSystem;
 import org.cryptomator.integrations.common.Priority;
 import org.cryptomator.integrations.keychain.KeychainAccessException;
 import org.cryptomator.integrations.keychain.KeychainAccessProvider;
+import org.freedesktop.dbus.exceptions.DBusConnectionException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.freedesktop.dbus.exceptions.NotConnected;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @deprecated Cryptomator has Secret Service as the successor of KDE Wallet and GNOME keyring as a keychain backend since version 1.19.0
@@ -24,7 +34,14 @@ public class GnomeKeyringKeychainAccess implements KeychainAccessProvider {
 
 	private static final Logger LOG = LoggerFactory.getLogger(GnomeKeyringKeychainAccess.class);
 
+	private static final long IDLE_TIMEOUT_SECONDS = 60;
+	private static final ScheduledExecutorService IDLE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("gnome-keyring-idle").factory());
+	private static final Set<String> CONNECTION_ERRORS = Set.of("org.freedesktop.DBus.Error.ServiceUnknown", "org.freedesktop.DBus.Error.Disconnected", "org.freedesktop.DBus.Error.NoServer");
+
 	private final String LABEL_FOR_SECRET_IN_KEYRING = "Cryptomator";
+	private final Lock keyringLock = new ReentrantLock();
+	private SimpleCollection keyring; // guarded by keyringLock
+	private ScheduledFuture<?> idleClose; // guarded by keyringLock
 
 	@Override
 	public boolean isSupported() {
@@ -41,8 +58,8 @@ public class GnomeKeyringKeychainAccess implements KeychainAccessProvider {
 
 	@Override
 	public boolean isLocked() {
-		try (SimpleCollection keyring = new SimpleCollection()) {
-			return keyring.isLocked();
+		try {
+			return withKeyring(SimpleCollection::isLocked, true);
 		} catch (IOException e) {
 			return true;
 		}
@@ -50,27 +67,37 @@ public class GnomeKeyringKeychainAccess implements KeychainAccessProvider {
 
 	@Override
 	public void storePassphrase(String key, String displayName, CharSequence passphrase) throws KeychainAccessException {
-		try (SimpleCollection keyring = new SimpleCollection()) {
-			List<String> list = keyring.getItems(createAttributes(key));
-			if (list == null || list.isEmpty()) {
-				keyring.createItem(LABEL_FOR_SECRET_IN_KEYRING, passphrase, createAttributes(key));
-			} else {
-				changePassphrase(key, displayName, passphrase);
-			}
+		boolean exists;
+		try {
+			exists = withKeyring(keyring -> {
+				List<String> list = keyring.getItems(createAttributes(key));
+				if (list == null || list.isEmpty()) {
+					try (var plaintext = SecretBuffer.copyOf(passphrase)) {
+						keyring.createItem(LABEL_FOR_SECRET_IN_KEYRING, plaintext, createAttributes(key));
+					}
+					return false;
+				}
+				return true;
+			}, false); // creating the item must not be repeated, it might have reached the daemon already
 		} catch (IOException | SecurityException e) {
 			throw new KeychainAccessException("Storing password failed.", e);
 		}
+		if (exists) {
+			changePassphrase(key, displayName, passphrase);
+		}
 	}
 
 	@Override
 	public char[] loadPassphrase(String key) throws KeychainAccessException {
-		try (SimpleCollection keyring = new SimpleCollection()) {
-			List<String> list = keyring.getItems(createAttributes(key));
-			if (list != null && !list.isEmpty()) {
-				return keyring.getSecret(list.get(0));
-			} else {
-				return null;
-			}
+		try {
+			return withKeyring(keyring -> {
+				List<String> list = keyring.getItems(createAttributes(key));
+				if (list != null && !list.isEmpty()) {
+					return keyring.getSecret(list.get(0));
+				} else {
+					return null;
+				}
+			}, true);
 		} catch (IOException | SecurityException e) {
 			throw new KeychainAccessException("Loading password failed.", e);
 		}
@@ -78,11 +105,14 @@ public class GnomeKeyringKeychainAccess implements KeychainAccessProvider {
 
 	@Override
 	public void deletePassphrase(String key) throws KeychainAccessException {
-		try (SimpleCollection keyring = new SimpleCollection()) {
-			List<String> list = keyring.getItems(createAttributes(key));
-			if (list != null && !list.isEmpty()) {
-				keyring.deleteItem(list.get(0));
-			}
+		try {
+			withKeyring(keyring -> {
+				List<String> list = keyring.getItems(createAttributes(key));
+				if (list != null && !list.isEmpty()) {
+					keyring.deleteItem(list.get(0));
+				}
+				return null;
+			}, true);
 		} catch (IOException | SecurityException e) {
 			throw new KeychainAccessException("Deleting password failed.", e);
 		}
@@ -90,18 +120,106 @@ public class GnomeKeyringKeychainAccess implements KeychainAccessProvider {
 
 	@Override
 	public void changePassphrase(String key, String displayName, CharSequence passphrase) throws KeychainAccessException {
-		try (SimpleCollection keyring = new SimpleCollection()) {
-			List<String> list = keyring.getItems(createAttributes(key));
-			if (list != null && !list.isEmpty()) {
-				keyring.updateItem(list.get(0), LABEL_FOR_SECRET_IN_KEYRING, passphrase, createAttributes(key));
-			}
+		try {
+			withKeyring(keyring -> {
+				List<String> list = keyring.getItems(createAttributes(key));
+				if (list != null && !list.isEmpty()) {
+					try (var plaintext = SecretBuffer.copyOf(passphrase)) {
+						keyring.updateItem(list.get(0), LABEL_FOR_SECRET_IN_KEYRING, plaintext, createAttributes(key));
+					}
+				}
+				return null;
+			}, true);
 		} catch (IOException | SecurityException e) {
 			throw new KeychainAccessException("Changing password failed.", e);
 		}
 	}
 
+	/**
+	 * Runs the given operation with the long-lived keyring handle, opening it if necessary.
+	 * <p>
+	 * If the operation fails, the handle is closed. Only if the failure is caused by a lost connection to a previously opened handle
+	 * and the operation can safely be run twice, it is retried once with a new handle.
+	 * After {@value #IDLE_TIMEOUT_SECONDS} seconds without any operation, the handle is closed.
+	 *
+	 * @param operation the operation to run
+	 * @param idempotent whether running the operation a second time has the same effect as running it once
+	 * @return the result of the operation
+	 * @throws IOException if opening the keyring or the operation failed
+	 */
+	private <T> T withKeyring(KeyringOperation<T> operation, boolean idempotent) throws IOException {
+		keyringLock.lock();
+		try {
+			if (idleClose != null) {
+				idleClose.cancel(false);
+			}
+			boolean reused = keyring != null;
+			try {
+				return operation.apply(openKeyring());
+			} catch (IOException | RuntimeException e) {
+				closeKeyring();
+				if (!reused || !idempotent || !isConnectionFailure(e)) {
+					throw e;
+				}
+				LOG.debug("Connection of existing keyring handle lost, retrying with new connection.", e);
+				return operation.apply(openKeyring());
+			}
+		} finally {
+			idleClose = IDLE_SCHEDULER.schedule(this::closeIdleKeyring, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			keyringLock.unlock();
+		}
+	}
+
+	private static boolean isConnectionFailure(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof NotConnected || t instanceof DBusConnectionException) {
+				return true;
+			} else if (t instanceof DBusExecutionException dee && CONNECTION_ERRORS.contains(dee.getType())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SimpleCollection openKeyring() throws IOException {
+		if (keyring == null) {
+			keyring = new SimpleCollection();
+		}
+		return keyring;
+	}
+
+	private void closeIdleKeyring() {
+		keyringLock.lock();
+		try {
+			if (keyring != null) {
+				LOG.trace("Closing idle keyring connection.");
+				closeKeyring();
+			}
+		} finally {
+			keyringLock.unlock();
+		}
+	}
+
+	private void closeKeyring() {
+		try {
+			if (keyring != null) {
+				keyring.close();
+			}
+		} catch (Exception e) {
+			LOG.debug("Failed to close keyring connection.", e);
+		} finally {
+			keyring = null;
+		}
+	}
+
 	private Map<String, String> createAttributes(String key) {
 		return Map.of("Vault", key);
 	}
 
+	@FunctionalInterface
+	private interface KeyringOperation<T> {
+
+		T apply(SimpleCollection keyring) throws IOException;
+	}
+
 }
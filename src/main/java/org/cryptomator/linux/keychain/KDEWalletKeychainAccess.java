@@ -17,7 +17,14 @@ import org.purejava.kwallet.Static;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @deprecated Cryptomator has Secret Service as the successor of KDE Wallet and GNOME keyring as a keychain backend since version 1.19.0
@@ -31,11 +38,20 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 	private static final Logger LOG = LoggerFactory.getLogger(KDEWalletKeychainAccess.class);
 	private static final String FOLDER_NAME = "Cryptomator";
 	private static final String APP_NAME = "Cryptomator";
+	private static final Duration DEFAULT_OPEN_TIMEOUT = Duration.ofMinutes(1);
 
 	private final Optional<ConnectedWallet> wallet;
 
+	//SPI constructor
 	public KDEWalletKeychainAccess() {
-		this.wallet = ConnectedWallet.connect();
+		this(DEFAULT_OPEN_TIMEOUT);
+	}
+
+	/**
+	 * @param openTimeout Maximum time to wait for the wallet to be opened, e.g. while the user is prompted for the wallet password
+	 */
+	public KDEWalletKeychainAccess(Duration openTimeout) {
+		this.wallet = ConnectedWallet.connect(openTimeout);
 	}
 
 	@Override
@@ -48,6 +64,19 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 		return wallet.map(ConnectedWallet::isLocked).orElse(false);
 	}
 
+	/**
+	 * Opens the default wallet without blocking the calling thread.
+	 * <p>
+	 * If the wallet is closed, kwalletd prompts the user to unlock it. The returned future completes exceptionally with a {@link TimeoutException},
+	 * if this does not happen within the configured timeout. Cancelling the returned future only stops waiting for this caller.
+	 *
+	 * @return a future completing with {@code true} if the wallet is open or {@code false} if opening was declined
+	 */
+	public CompletableFuture<Boolean> openWalletAsync() {
+		return wallet.map(w -> w.openAsync().thenApply(handle -> handle != -1)) //
+				.orElseGet(() -> CompletableFuture.failedFuture(new IllegalStateException("Keychain not supported.")));
+	}
+
 	@Override
 	public void storePassphrase(String key, String displayName, CharSequence passphrase) throws KeychainAccessException {
 		CheckUtil.checkState(wallet.isPresent(), "Keychain not supported.");
@@ -74,16 +103,29 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 
 	private static class ConnectedWallet {
 
+		private static final int NO_ENTRY = -1;
+		private static final int ENTRY_TYPE_PASSWORD = 1;
+
+		private final DBusConnection connection;
 		private final KDEWallet wallet;
-		private int handle = -1;
+		private final Duration openTimeout;
+		private volatile int handle = -1; // valid as long as kwalletd didn't signal walletClosed
+		// key -> entry type in FOLDER_NAME, invalidated by folderUpdated
+		private final Map<String, Integer> entryTypes = new ConcurrentHashMap<>();
+		private CompletableFuture<Integer> pendingOpen; // guarded by this, shared by concurrent open attempts
 
-		public ConnectedWallet(DBusConnection connection) {
+		public ConnectedWallet(DBusConnection connection, Duration openTimeout) throws DBusException {
+			this.connection = connection;
 			this.wallet = new KDEWallet(connection);
+			this.openTimeout = openTimeout;
+			connection.addSigHandler(KWallet.walletOpened.class, signal -> LOG.trace("A wallet was opened."));
+			connection.addSigHandler(KWallet.walletClosed.class, signal -> walletClosed());
+			connection.addSigHandler(KWallet.folderUpdated.class, signal -> entryTypes.clear());
 		}
 
-		static Optional<ConnectedWallet> connect() {
+		static Optional<ConnectedWallet> connect(Duration openTimeout) {
 			try {
-				return Optional.of(new ConnectedWallet(getNewConnection()));
+				return Optional.of(new ConnectedWallet(getNewConnection(), openTimeout));
 			} catch (DBusException e) {
 				LOG.warn("Connecting to D-Bus failed.", e);
 				return Optional.empty();
@@ -110,6 +152,9 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 		}
 
 		public boolean isLocked() {
+			if (handle != -1) {
+				return false;
+			}
 			try {
 				return !wallet.isOpen(Static.DEFAULT_WALLET);
 			} catch (RuntimeException e) {
@@ -120,14 +165,17 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 
 		public void storePassphrase(String key, CharSequence passphrase) throws KeychainAccessException {
 			try {
-				if (walletIsOpen() &&
-						!(wallet.hasEntry(handle, FOLDER_NAME, key, APP_NAME) && wallet.entryType(handle, FOLDER_NAME, key, APP_NAME) == 1)
-						&& wallet.writePassword(handle, FOLDER_NAME, key, passphrase.toString(), APP_NAME) == 0) {
+				int handle = openWallet();
+				if (handle != -1
+						&& entryType(handle, key) != ENTRY_TYPE_PASSWORD
+						&& wallet.writePassword(handle, FOLDER_NAME, key, passphrase.toString(), APP_NAME) == 0) { // the binding only accepts strings, so a SecretBuffer would add a copy
+					entryTypes.put(key, ENTRY_TYPE_PASSWORD);
 					LOG.debug("Passphrase successfully stored.");
 				} else {
 					LOG.debug("Passphrase was not stored.");
 				}
 			} catch (RuntimeException e) {
+				walletClosed();
 				throw new KeychainAccessException("Storing the passphrase failed.", e);
 			}
 		}
@@ -135,7 +183,8 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 		public char[] loadPassphrase(String key) throws KeychainAccessException {
 			String password = "";
 			try {
-				if (walletIsOpen()) {
+				int handle = openWallet();
+				if (handle != -1) {
 					password = wallet.readPassword(handle, FOLDER_NAME, key, APP_NAME);
 					LOG.debug("loadPassphrase: wallet is open.");
 				} else {
@@ -143,58 +192,133 @@ public class KDEWalletKeychainAccess implements KeychainAccessProvider {
 				}
 				return (password.isEmpty()) ? null : password.toCharArray();
 			} catch (RuntimeException e) {
+				walletClosed();
 				throw new KeychainAccessException("Loading the passphrase failed.", e);
 			}
 		}
 
 		public void deletePassphrase(String key) throws KeychainAccessException {
 			try {
-				if (walletIsOpen()
-						&& wallet.hasEntry(handle, FOLDER_NAME, key, APP_NAME)
-						&& wallet.entryType(handle, FOLDER_NAME, key, APP_NAME) == 1
+				int handle = openWallet();
+				if (handle != -1
+						&& entryType(handle, key) == ENTRY_TYPE_PASSWORD
 						&& wallet.removeEntry(handle, FOLDER_NAME, key, APP_NAME) == 0) {
+					entryTypes.put(key, NO_ENTRY);
 					LOG.debug("Passphrase successfully deleted.");
 				} else {
 					LOG.debug("Passphrase was not deleted.");
 				}
 			} catch (RuntimeException e) {
+				walletClosed();
 				throw new KeychainAccessException("Deleting the passphrase failed.", e);
 			}
 		}
 
 		public void changePassphrase(String key, CharSequence passphrase) throws KeychainAccessException {
 			try {
-				if (walletIsOpen()
-						&& wallet.hasEntry(handle, FOLDER_NAME, key, APP_NAME)
-						&& wallet.entryType(handle, FOLDER_NAME, key, APP_NAME) == 1
+				int handle = openWallet();
+				if (handle != -1
+						&& entryType(handle, key) == ENTRY_TYPE_PASSWORD
 						&& wallet.writePassword(handle, FOLDER_NAME, key, passphrase.toString(), APP_NAME) == 0) {
 					LOG.debug("Passphrase successfully changed.");
 				} else {
 					LOG.debug("Passphrase could not be changed.");
 				}
 			} catch (RuntimeException e) {
+				walletClosed();
 				throw new KeychainAccessException("Changing the passphrase failed.", e);
 			}
 		}
 
-		private boolean walletIsOpen() throws KeychainAccessException {
+		/**
+		 * Looks up the type of the entry in the index, querying kwalletd only on a cache miss.
+		 *
+		 * @param handle the handle of the open wallet
+		 * @param key the entry key
+		 * @return the entry type or {@value #NO_ENTRY} if the folder contains no such entry
+		 */
+		private int entryType(int handle, String key) {
+			var cached = entryTypes.get(key);
+			if (cached != null) {
+				return cached;
+			}
+			int type = wallet.hasEntry(handle, FOLDER_NAME, key, APP_NAME) ? wallet.entryType(handle, FOLDER_NAME, key, APP_NAME) : NO_ENTRY;
+			entryTypes.put(key, type);
+			return type;
+		}
+
+		private void walletClosed() {
+			handle = -1;
+			entryTypes.clear();
+		}
+
+		/**
+		 * Opens the wallet, if not open already.
+		 *
+		 * @return the wallet handle, which is {@code -1} if opening was declined
+		 */
+		private int openWallet() throws KeychainAccessException {
+			int current = handle;
+			if (current != -1) {
+				return current; // fast path, handle is reset as soon as the wallet gets closed
+			}
+			try {
+				return openAsync().get(); // bounded by openTimeout
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new KeychainAccessException("Interrupted while opening the wallet.", e);
+			} catch (ExecutionException e) {
+				throw new KeychainAccessException("Asynchronous opening the wallet failed.", e.getCause());
+			}
+		}
+
+		/**
+		 * Opens the default wallet. Concurrent callers share the same attempt, which fails after {@link #openTimeout}.
+		 *
+		 * @return a future completing with the wallet handle, which is {@code -1} if opening was declined. Can be cancelled independently by each caller.
+		 */
+		synchronized CompletableFuture<Integer> openAsync() {
+			if (handle != -1) {
+				return CompletableFuture.completedFuture(handle);
+			}
+			if (pendingOpen == null || pendingOpen.isDone()) {
+				pendingOpen = startOpening();
+			}
+			return pendingOpen.copy();
+		}
+
+		private CompletableFuture<Integer> startOpening() {
+			var opened = new CompletableFuture<Integer>();
 			try {
 				if (wallet.isOpen(Static.DEFAULT_WALLET)) {
 					// This is needed due to KeechainManager loading the passphase directly
-					if (handle == -1) handle = wallet.open(Static.DEFAULT_WALLET, 0, APP_NAME);
-					return true;
+					handle = wallet.open(Static.DEFAULT_WALLET, 0, APP_NAME);
+					return CompletableFuture.completedFuture(handle);
 				}
-				wallet.openAsync(Static.DEFAULT_WALLET, 0, APP_NAME, false);
-				wallet.getSignalHandler().await(KWallet.walletAsyncOpened.class, Static.ObjectPaths.KWALLETD5, () -> null);
-				handle = wallet.getSignalHandler().getLastHandledSignal(KWallet.walletAsyncOpened.class, Static.ObjectPaths.KWALLETD5).handle;
-				LOG.debug("Wallet successfully initialized.");
-				return handle != -1;
-			} catch (RuntimeException e) {
-				throw new KeychainAccessException("Asynchronous opening the wallet failed.", e);
+				// the signal may arrive before openAsync returns the transaction id, so matching is deferred until it is known
+				var transactionId = new CompletableFuture<Integer>();
+				var subscription = connection.addSigHandler(KWallet.walletAsyncOpened.class, signal -> transactionId.thenAccept(tId -> {
+					if (tId == signal.tId) {
+						if (signal.handle != -1) {
+							handle = signal.handle; // before completing, so dependents see the handle
+							LOG.debug("Wallet successfully initialized.");
+						}
+						opened.complete(signal.handle);
+					}
+				}));
+				opened.orTimeout(openTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((h, e) -> {
+					try {
+						subscription.close();
+					} catch (Exception ex) {
+						LOG.debug("Failed to remove signal handler.", ex);
+					}
+				});
+				transactionId.complete(wallet.openAsync(Static.DEFAULT_WALLET, 0, APP_NAME, false));
+			} catch (DBusException | RuntimeException e) {
+				opened.completeExceptionally(e);
 			}
+			return opened;
 		}
 
-
 	}
 }
-
@@ -0,0 +1,90 @@
+package org.cryptomator.linux.keychain;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Passphrase to be stored, held in off-heap memory.
+ * <p>
+ * The characters are stored in a memory segment of a confined {@link Arena}, hence the buffer must only be used by the thread creating it.
+ * Closing the buffer overwrites the memory with zeros before releasing it, so no copy is left behind for the garbage collector.
+ * <p>
+ * Since the buffer is a {@link CharSequence}, it can be handed to APIs expecting one without creating a heap copy.
+ * Only {@link #toString()} creates a {@link String}, which should be limited to APIs that do not accept anything else.
+ * Note that this only covers the copy made by the keychain provider: The binding may still encode the passphrase on the heap,
+ * and loaded passphrases are returned by the bindings as {@code char[]} or {@link String}.
+ */
+final class SecretBuffer implements CharSequence, AutoCloseable {
+
+	private final Arena arena;
+	private final MemorySegment segment;
+	private final int length;
+
+	private SecretBuffer(int length) {
+		this.arena = Arena.ofConfined();
+		this.segment = arena.allocate(ValueLayout.JAVA_CHAR, length);
+		this.length = length;
+	}
+
+	/**
+	 * Copies the given characters into a new buffer.
+	 *
+	 * @param chars the passphrase
+	 * @return a new buffer, which must be closed by the caller
+	 */
+	static SecretBuffer copyOf(CharSequence chars) {
+		var buffer = new SecretBuffer(chars.length());
+		for (int i = 0; i < buffer.length; i++) {
+			buffer.segment.setAtIndex(ValueLayout.JAVA_CHAR, i, chars.charAt(i));
+		}
+		return buffer;
+	}
+
+	private char[] toCharArray() {
+		var chars = new char[length];
+		MemorySegment.copy(segment, ValueLayout.JAVA_CHAR, 0, chars, 0, length);
+		return chars;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return segment.getAtIndex(ValueLayout.JAVA_CHAR, index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return CharBuffer.wrap(this, start, end);
+	}
+
+	/**
+	 * Creates a heap copy of the passphrase. Only use this if the receiving API requires a {@link String}.
+	 *
+	 * @return the passphrase as string
+	 */
+	@Override
+	public String toString() {
+		var chars = toCharArray();
+		try {
+			return new String(chars);
+		} finally {
+			Arrays.fill(chars, '\0');
+		}
+	}
+
+	@Override
+	public void close() {
+		segment.fill((byte) 0);
+		arena.close();
+	}
+}
@@ -14,9 +14,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Priority(1100)
 @OperatingSystem(OperatingSystem.Value.LINUX)
@@ -27,46 +31,75 @@ public class SecretServiceKeychainAccess implements KeychainAccessProvider {
 	private static final String LABEL_FOR_SECRET_IN_KEYRING = "Cryptomator";
 	private static final String ID_KEY = "Vault";
 	private static final String NAME_KEY = "Name";
-	private final EncryptedSession session = new EncryptedSession();
-	private final Collection collection = new Collection(new DBusPath(Static.DBusPath.DEFAULT_COLLECTION));
-
-	public SecretServiceKeychainAccess() {
-		session.getService().addCollectionChangedHandler(collection -> LOG.debug("Collection {} changed", collection.getPath()));
-		session.getService().addCollectionCreatedHandler(collection -> LOG.debug("Collection {} created", collection.getPath()));
-		session.getService().addCollectionDeletedHandler(collection -> LOG.debug("Collection {} deleted", collection.getPath()));
-		var getAlias = session.getService().readAlias("default");
+	// vault key -> item path; filled on lookup and kept consistent via the item/collection signals of the daemon
+	private final Map<String, DBusPath> itemPaths = new ConcurrentHashMap<>();
+	private final SecretServiceSession sessions = new SecretServiceSession(this::daemonRestarted);
+	// D-Bus objects are created on first use, so that merely loading this provider does not talk to the daemon
+	private Collection collection;
+
+	/**
+	 * Connects to the secret service daemon, if not done already.
+	 *
+	 * @return the default collection
+	 */
+	private synchronized Collection ensureInitialized() {
+		if (collection != null) {
+			return collection;
+		}
+		var encryptedSession = sessions.get();
+		var defaultCollection = new Collection(new DBusPath(Static.DBusPath.DEFAULT_COLLECTION));
+		encryptedSession.getService().addCollectionChangedHandler(collection -> LOG.debug("Collection {} changed", collection.getPath()));
+		encryptedSession.getService().addCollectionCreatedHandler(collection -> LOG.debug("Collection {} created", collection.getPath()));
+		encryptedSession.getService().addCollectionDeletedHandler(collection -> {
+			LOG.debug("Collection {} deleted", collection.getPath());
+			itemPaths.clear();
+		});
+		var getAlias = encryptedSession.getService().readAlias("default");
 		if (getAlias.isSuccess() && "/".equals(getAlias.value().getPath())) {
 			// default alias is not set; set it to the login keyring
-			session.getService().setAlias("default", new DBusPath(Static.DBusPath.LOGIN_COLLECTION));
+			encryptedSession.getService().setAlias("default", new DBusPath(Static.DBusPath.LOGIN_COLLECTION));
 		}
-		collection.addItemChangedHandler(item -> LOG.debug("Item {} changed", item.getPath()));
-		collection.addItemCreatedHandler(item -> LOG.debug("Item {} created", item.getPath()));
-		collection.addItemDeletedHandler(item -> LOG.debug("Item {} deleted", item.getPath()));
+		defaultCollection.addItemChangedHandler(item -> {
+			LOG.debug("Item {} changed", item.getPath());
+			evictItem(item); // attributes might have changed
+		});
+		defaultCollection.addItemCreatedHandler(item -> LOG.debug("Item {} created", item.getPath())); // picked up on next cache miss
+		defaultCollection.addItemDeletedHandler(item -> {
+			LOG.debug("Item {} deleted", item.getPath());
+			evictItem(item);
+		});
+		this.collection = defaultCollection;
+		return defaultCollection;
+	}
 
+	private synchronized void daemonRestarted() {
+		// item paths and signal subscriptions are bound to the previous daemon instance
+		collection = null;
+		itemPaths.clear();
 	}
 
 	@Override
 	public void storePassphrase(String key, String displayName, CharSequence passphrase) throws KeychainAccessException {
 		try {
-			var call = collection.searchItems(withKey(key));
-			if (call.isSuccess()) {
-				if (call.value().isEmpty()) {
-					List<DBusPath> lockable = new ArrayList<>();
-					lockable.add(new DBusPath(collection.getDBusPath()));
-					session.getService().unlock(lockable);
-					var itemProps = Item.createProperties(LABEL_FOR_SECRET_IN_KEYRING, withKeyAndName(key, displayName));
-					var secret = session.encrypt(passphrase);
+			var collection = ensureInitialized();
+			var session = sessions.negotiated();
+			if (lookupItem(key).isEmpty()) {
+				List<DBusPath> lockable = new ArrayList<>();
+				lockable.add(new DBusPath(collection.getDBusPath()));
+				session.getService().unlock(lockable);
+				var itemProps = Item.createProperties(LABEL_FOR_SECRET_IN_KEYRING, withKeyAndName(key, displayName));
+				try (var plaintext = SecretBuffer.copyOf(passphrase)) {
+					var secret = session.encrypt(plaintext);
 					var created = collection.createItem(itemProps, secret, false);
 					if (!created.isSuccess()) {
 						throw new KeychainAccessException("Storing password failed", created.error());
 					}
-				} else {
-					changePassphrase(key, displayName, passphrase);
 				}
 			} else {
-				throw new KeychainAccessException("Storing password failed", call.error());
+				changePassphrase(key, displayName, passphrase);
 			}
 		} catch (Exception e) {
+			forget(key);
 			throw new KeychainAccessException("Storing password failed.", e);
 		}
 	}
@@ -74,44 +107,143 @@ public class SecretServiceKeychainAccess implements KeychainAccessProvider {
 	@Override
 	public char[] loadPassphrase(String key) throws KeychainAccessException {
 		try {
-			var call = collection.searchItems(withKey(key));
-			if (call.isSuccess()) {
-				if (!call.value().isEmpty()) {
-					var path = call.value().getFirst();
-					session.getService().ensureUnlocked(path);
-					var secret = new Item(path).getSecret(session.getSession());
-					return session.decrypt(secret);
-				} else {
-					return null;
-				}
-			} else {
-				throw new KeychainAccessException("Loading password failed", call.error());
-			}
+			ensureInitialized();
+			return loadPassphrase(new DBusSecretStore(sessions.negotiated()), key);
 		} catch (Exception e) {
+			forget(key);
 			throw new KeychainAccessException("Loading password failed.", e);
 		}
 	}
 
+	/**
+	 * Loads the passphrases of several vaults at once.
+	 * <p>
+	 * All item paths are resolved first. Paths are mostly cached, so usually no search is needed. Then the items are unlocked with a single unlock request
+	 * (items of a collection share its lock state), and all secrets are fetched with a single {@code GetSecrets} call.
+	 *
+	 * @param keys the vault keys
+	 * @return a map from vault key to passphrase. Keys without a stored passphrase are not contained.
+	 * @throws KeychainAccessException if resolving, unlocking or decrypting any of the items failed
+	 */
+	public Map<String, char[]> loadPassphrases(java.util.Collection<String> keys) throws KeychainAccessException {
+		try {
+			ensureInitialized();
+			return loadPassphrases(new DBusSecretStore(sessions.negotiated()), keys);
+		} catch (Exception e) {
+			keys.forEach(this::forget);
+			throw new KeychainAccessException("Loading passwords failed.", e);
+		}
+	}
+
+	/**
+	 * Items and secrets of the secret service, as far as needed to load passphrases. Each method corresponds to one D-Bus round trip, unless cached.
+	 */
+	interface SecretStore {
+
+		Optional<DBusPath> lookup(String key) throws KeychainAccessException;
+
+		/**
+		 * Unlocks the given items with a single request, regardless of whether the provider locks per collection or per item.
+		 *
+		 * @param items the items to unlock
+		 */
+		void unlock(List<DBusPath> items) throws KeychainAccessException;
+
+		char[] getSecret(DBusPath item) throws KeychainAccessException;
+
+		/**
+		 * @param items the items to fetch the secrets of
+		 * @return the decrypted secrets by object path of the item. Items that do not exist (anymore) are not contained.
+		 */
+		Map<String, char[]> getSecrets(List<DBusPath> items) throws KeychainAccessException;
+	}
+
+	static char[] loadPassphrase(SecretStore store, String key) throws KeychainAccessException {
+		var item = store.lookup(key);
+		if (item.isEmpty()) {
+			return null;
+		}
+		store.unlock(List.of(item.get()));
+		return store.getSecret(item.get());
+	}
+
+	static Map<String, char[]> loadPassphrases(SecretStore store, java.util.Collection<String> keys) throws KeychainAccessException {
+		Map<String, DBusPath> paths = new LinkedHashMap<>();
+		for (var key : keys) {
+			store.lookup(key).ifPresent(path -> paths.put(key, path));
+		}
+		if (paths.isEmpty()) {
+			return Map.of();
+		}
+		var items = List.copyOf(paths.values());
+		store.unlock(items); // providers like KeePassXC lock per item, and GetSecrets silently skips locked ones
+		var secrets = store.getSecrets(items);
+		Map<String, char[]> passphrases = HashMap.newHashMap(paths.size());
+		for (var entry : paths.entrySet()) {
+			var secret = secrets.get(entry.getValue().getPath());
+			if (secret != null) {
+				passphrases.put(entry.getKey(), secret);
+			}
+		}
+		return passphrases;
+	}
+
+	private class DBusSecretStore implements SecretStore {
+
+		private final EncryptedSession session;
+
+		DBusSecretStore(EncryptedSession session) {
+			this.session = session;
+		}
+
+		@Override
+		public Optional<DBusPath> lookup(String key) throws KeychainAccessException {
+			return lookupItem(key);
+		}
+
+		@Override
+		public void unlock(List<DBusPath> items) {
+			session.getService().unlock(items);
+		}
+
+		@Override
+		public char[] getSecret(DBusPath item) {
+			return session.decrypt(new Item(item).getSecret(session.getSession()));
+		}
+
+		@Override
+		public Map<String, char[]> getSecrets(List<DBusPath> items) throws KeychainAccessException {
+			var call = session.getService().getSecrets(items, session.getSession());
+			if (!call.isSuccess()) {
+				throw new KeychainAccessException("Fetching secrets failed", call.error());
+			}
+			Map<String, char[]> secrets = HashMap.newHashMap(items.size());
+			for (var entry : call.value().entrySet()) {
+				secrets.put(entry.getKey().getPath(), session.decrypt(entry.getValue()));
+			}
+			return secrets;
+		}
+	}
+
 	@Override
 	public void deletePassphrase(String key) throws KeychainAccessException {
 		try {
-			var call = collection.searchItems(withKey(key));
-			if (call.isSuccess()) {
-				if (!call.value().isEmpty()) {
-					var path = call.value().getFirst();
-					session.getService().ensureUnlocked(path);
-					var item = new Item(path);
-					var deleted = item.delete();
-					if (!deleted.isSuccess()) {
-						throw new KeychainAccessException("Deleting password failed", deleted.error());
-					}
-				} else {
-					LOG.debug("Deleting entry with {}={} failed: No such item found", ID_KEY, key);
+			ensureInitialized();
+			var session = sessions.negotiated();
+			var item = lookupItem(key);
+			if (item.isPresent()) {
+				var path = item.get();
+				session.getService().ensureUnlocked(path);
+				var deleted = new Item(path).delete();
+				if (!deleted.isSuccess()) {
+					throw new KeychainAccessException("Deleting password failed", deleted.error());
 				}
+				itemPaths.remove(key);
 			} else {
-				throw new KeychainAccessException("Deleting password failed", call.error());
+				LOG.debug("Deleting entry with {}={} failed: No such item found", ID_KEY, key);
 			}
 		} catch (Exception e) {
+			forget(key);
 			throw new KeychainAccessException("Deleting password failed", e);
 		}
 	}
@@ -119,24 +251,25 @@ public class SecretServiceKeychainAccess implements KeychainAccessProvider {
 	@Override
 	public void changePassphrase(String key, String displayName, CharSequence passphrase) throws KeychainAccessException {
 		try {
-			var call = collection.searchItems(withKey(key));
-			if (call.isSuccess()) {
-				if (!call.value().isEmpty()) {
-					session.getService().ensureUnlocked(call.value().getFirst());
-					var secret = session.encrypt(passphrase);
-					var itemProps = Item.createProperties(LABEL_FOR_SECRET_IN_KEYRING, withKeyAndName(key, displayName));
+			var collection = ensureInitialized();
+			var session = sessions.negotiated();
+			var item = lookupItem(key);
+			if (item.isPresent()) {
+				session.getService().ensureUnlocked(item.get());
+				var itemProps = Item.createProperties(LABEL_FOR_SECRET_IN_KEYRING, withKeyAndName(key, displayName));
+				try (var plaintext = SecretBuffer.copyOf(passphrase)) {
+					var secret = session.encrypt(plaintext);
 					var updated = collection.createItem(itemProps, secret, true);
 					if (!updated.isSuccess()) {
 						throw new KeychainAccessException("Updating password failed", updated.error());
 					}
-				} else {
-					var msg = "Vault " + key + " not found, updating failed";
-					throw new KeychainAccessException(msg);
 				}
 			} else {
-				throw new KeychainAccessException("Updating password failed", call.error());
+				var msg = "Vault " + key + " not found, updating failed";
+				throw new KeychainAccessException(msg);
 			}
 		} catch (Exception e) {
+			forget(key);
 			throw new KeychainAccessException("Updating password failed", e);
 		}
 	}
@@ -144,8 +277,8 @@ public class SecretServiceKeychainAccess implements KeychainAccessProvider {
 	@Override
 	public boolean isSupported() {
 		try {
-			return session.setupEncryptedSession() &&
-					session.getService().hasDefaultCollection();
+			// only probe the daemon; key exchange, alias fix-up and signal subscriptions are deferred to first use
+			return sessions.get().getService().hasDefaultCollection();
 		} catch (RuntimeException e) {
 			LOG.debug("Not supported due to exception in isSupported method", e);
 			return false;
@@ -154,10 +287,62 @@ public class SecretServiceKeychainAccess implements KeychainAccessProvider {
 
 	@Override
 	public boolean isLocked() {
+		Collection collection;
+		try {
+			collection = ensureInitialized();
+		} catch (RuntimeException e) {
+			LOG.debug("Considering keychain locked due to exception during initialization", e);
+			return true;
+		}
 		var call = collection.isLocked();
 		return !call.isSuccess() || call.value();
 	}
 
+	/**
+	 * @return Number of encrypted sessions negotiated with the secret service daemon so far
+	 */
+	long getSessionNegotiationCount() {
+		return sessions.getNegotiationCount();
+	}
+
+	/**
+	 * Looks up the path of the item belonging to the given vault key.
+	 * <p>
+	 * Paths are cached after the first successful search. The cache is invalidated by the item and collection signals of the secret service,
+	 * so in the common case no D-Bus round trip is needed to resolve an item.
+	 *
+	 * @param key the vault key
+	 * @return the item path or an empty optional, if no item exists for the key
+	 * @throws KeychainAccessException if the search in the collection failed
+	 */
+	private Optional<DBusPath> lookupItem(String key) throws KeychainAccessException {
+		var attributes = withKey(key); // validates the key before touching the cache, which does not permit null
+		var cached = itemPaths.get(key);
+		if (cached != null) {
+			return Optional.of(cached);
+		}
+		var call = ensureInitialized().searchItems(attributes);
+		if (!call.isSuccess()) {
+			throw new KeychainAccessException("Searching for item failed", call.error());
+		}
+		if (call.value().isEmpty()) {
+			return Optional.empty();
+		}
+		var path = call.value().getFirst();
+		itemPaths.put(key, path);
+		return Optional.of(path);
+	}
+
+	private void forget(String key) {
+		if (key != null) {
+			itemPaths.remove(key);
+		}
+	}
+
+	private void evictItem(DBusPath item) {
+		itemPaths.values().removeIf(path -> path.getPath().equals(item.getPath()));
+	}
+
 	private Map<String, String> withKey(String key) {
 		if (key == null) {
 			throw new IllegalArgumentException("Arguments must not be null");
@@ -0,0 +1,133 @@
+package org.cryptomator.linux.keychain;
+
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.connections.impl.DBusConnectionBuilder;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.interfaces.DBus;
+import org.purejava.secret.api.EncryptedSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lifecycle of the encrypted session with the secret service daemon.
+ * <p>
+ * The Diffie-Hellman key exchange is performed once and the negotiated session is reused for all subsequent operations.
+ * If the daemon owning {@value #SECRETS_BUS_NAME} goes away (e.g. it is restarted), the session is discarded and transparently negotiated again on next use.
+ */
+class SecretServiceSession {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SecretServiceSession.class);
+	private static final String SECRETS_BUS_NAME = "org.freedesktop.secrets";
+
+	private final Runnable onDaemonRestart;
+	private final LongAdder negotiations = new LongAdder();
+	private EncryptedSession session;
+	private boolean negotiated;
+	private DBusConnection ownerWatchConnection; // only while negotiated
+	private AutoCloseable ownerWatch;
+
+	/**
+	 * @param onDaemonRestart Callback invoked after the session got invalidated due to a daemon restart, e.g. to discard cached object paths
+	 */
+	SecretServiceSession(Runnable onDaemonRestart) {
+		this.onDaemonRestart = onDaemonRestart;
+	}
+
+	/**
+	 * Gets the current session object, creating it if necessary. The session is not necessarily negotiated yet.
+	 *
+	 * @return the current session
+	 */
+	synchronized EncryptedSession get() {
+		if (session == null) {
+			session = new EncryptedSession();
+			negotiated = false;
+		}
+		return session;
+	}
+
+	/**
+	 * Negotiates the encrypted session, unless this already happened with the current daemon.
+	 *
+	 * @return {@code true} if a negotiated session is available
+	 */
+	synchronized boolean negotiate() {
+		var current = get();
+		if (!negotiated) {
+			negotiated = current.setupEncryptedSession();
+			if (negotiated) {
+				negotiations.increment();
+				watchOwner();
+				LOG.debug("Negotiated encrypted session with secret service");
+			}
+		}
+		return negotiated;
+	}
+
+	/**
+	 * Gets the current session, negotiating it first if necessary.
+	 *
+	 * @return a negotiated session
+	 * @throws IllegalStateException if the session could not be negotiated
+	 */
+	synchronized EncryptedSession negotiated() throws IllegalStateException {
+		if (!negotiate()) {
+			throw new IllegalStateException("Failed to set up encrypted session with secret service.");
+		}
+		return session;
+	}
+
+	/**
+	 * Discards the current session and stops watching the daemon. A new session is created and negotiated on next use.
+	 */
+	synchronized void invalidate() {
+		session = null;
+		negotiated = false;
+		unwatchOwner();
+	}
+
+	/**
+	 * @return Number of successful key exchanges since this object was created
+	 */
+	long getNegotiationCount() {
+		return negotiations.sum();
+	}
+
+	private void watchOwner() {
+		try {
+			// the shared session bus connection, also used by the secret service bindings; closing it only releases our reference
+			ownerWatchConnection = DBusConnectionBuilder.forSessionBus().build();
+			ownerWatch = ownerWatchConnection.addSigHandler(DBus.NameOwnerChanged.class, this::nameOwnerChanged);
+		} catch (DBusException e) {
+			LOG.warn("Unable to watch {} for restarts, session will not be renegotiated.", SECRETS_BUS_NAME, e);
+			unwatchOwner();
+		}
+	}
+
+	private void unwatchOwner() {
+		try {
+			if (ownerWatch != null) {
+				ownerWatch.close();
+			}
+			if (ownerWatchConnection != null) {
+				ownerWatchConnection.close();
+			}
+		} catch (Exception e) {
+			LOG.debug("Failed to stop watching {}.", SECRETS_BUS_NAME, e);
+		} finally {
+			ownerWatch = null;
+			ownerWatchConnection = null;
+		}
+	}
+
+	private void nameOwnerChanged(DBus.NameOwnerChanged signal) {
+		// ignore the initial acquisition of the name, e.g. on bus activation
+		if (SECRETS_BUS_NAME.equals(signal.name) && !signal.oldOwner.isEmpty()) {
+			LOG.debug("Owner of {} changed from {} to {}, invalidating session", SECRETS_BUS_NAME, signal.oldOwner, signal.newOwner);
+			invalidate();
+			onDaemonRestart.run();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.common.CheckAvailability;
+import org.cryptomator.integrations.common.DisplayName;
+import org.cryptomator.integrations.common.OperatingSystem;
+import org.cryptomator.integrations.common.Priority;
+import org.cryptomator.integrations.quickaccess.QuickAccessService;
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Implementation of the {@link QuickAccessService} adding entries to both Nautilus and Dolphin, for users running GNOME and KDE applications side by side.
+ * <p>
+ * Each operation is dispatched to all delegates in parallel on virtual threads, so it takes as long as the slowest delegate rather than the sum of all.
+ * If adding fails for any delegate, the entries added to the others are removed again, so an entry is present either everywhere or nowhere.
+ */
+@Priority(80)
+@CheckAvailability
+@OperatingSystem(OperatingSystem.Value.LINUX)
+@DisplayName("GNOME Nautilus Bookmarks and KDE Dolphin Places")
+public class CompositeQuickAccess implements QuickAccessService {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CompositeQuickAccess.class);
+	private static final ThreadFactory THREAD_FACTORY = Thread.ofVirtual().name("quickaccess-composite-", 0).factory();
+
+	private final List<QuickAccessService> delegates;
+
+	//SPI constructor; the delegates share the in-process lock of their config file with the instances loaded by the ServiceLoader
+	public CompositeQuickAccess() {
+		this(List.of(new NautilusBookmarks(), new DolphinPlaces()));
+	}
+
+	/**
+	 * @param delegates the services to add entries to
+	 */
+	public CompositeQuickAccess(List<? extends QuickAccessService> delegates) {
+		this.delegates = List.copyOf(delegates);
+	}
+
+	@Override
+	public QuickAccessEntry add(Path target, String displayName) throws QuickAccessServiceException {
+		var futures = runInParallel(delegates, delegate -> delegate.add(target, displayName));
+		var entries = new LinkedHashMap<QuickAccessService, QuickAccessEntry>();
+		var failures = new ArrayList<Throwable>();
+		for (int i = 0; i < delegates.size(); i++) {
+			var future = futures.get(i);
+			if (future.state() == Future.State.SUCCESS) {
+				entries.put(delegates.get(i), future.resultNow());
+			} else {
+				failures.add(future.exceptionNow());
+			}
+		}
+		if (failures.isEmpty()) {
+			return new CompositeQuickAccessEntry(entries);
+		}
+		var exception = combine("Failed to add entry to %d of %d quick access services.".formatted(failures.size(), delegates.size()), failures);
+		try {
+			new CompositeQuickAccessEntry(entries).remove(); // roll back
+		} catch (QuickAccessServiceException e) {
+			LOG.warn("Failed to roll back entry for {}.", target, e);
+			exception.addSuppressed(e);
+		}
+		throw exception;
+	}
+
+	/**
+	 * Removes several entries at once. Each delegate removes its part of the entries in parallel to the others and,
+	 * if it supports it, in a single transaction (see {@link FileConfiguredQuickAccess#removeAll(Collection)}).
+	 * If removing fails for some delegates, it may be retried, since removing an entry is idempotent.
+	 *
+	 * @param entries Entries previously returned by this service
+	 * @throws IllegalArgumentException If an entry does not belong to this service
+	 * @throws QuickAccessServiceException If the entries could not be removed from some of the delegates
+	 */
+	public void removeAll(Collection<? extends QuickAccessEntry> entries) throws IllegalArgumentException, QuickAccessServiceException {
+		var entriesByDelegate = new LinkedHashMap<QuickAccessService, List<QuickAccessEntry>>();
+		for (var entry : entries) {
+			if (!(entry instanceof CompositeQuickAccessEntry e) || e.owner() != this) {
+				throw new IllegalArgumentException("Entry does not belong to " + getClass().getSimpleName());
+			}
+			e.entries.forEach((delegate, delegateEntry) -> entriesByDelegate.computeIfAbsent(delegate, d -> new ArrayList<>()).add(delegateEntry));
+		}
+		var failures = runInParallel(List.copyOf(entriesByDelegate.entrySet()), delegateEntries -> {
+			removeAll(delegateEntries.getKey(), delegateEntries.getValue());
+			return null;
+		}).stream().filter(future -> future.state() == Future.State.FAILED).map(Future::exceptionNow).toList();
+		if (!failures.isEmpty()) {
+			throw combine("Failed to remove entries from %d of %d quick access services.".formatted(failures.size(), entriesByDelegate.size()), failures);
+		}
+	}
+
+	private static void removeAll(QuickAccessService delegate, List<QuickAccessEntry> entries) throws QuickAccessServiceException {
+		if (delegate instanceof FileConfiguredQuickAccess fileConfigured) {
+			fileConfigured.removeAll(entries);
+		} else {
+			for (var entry : entries) {
+				entry.remove();
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface Task<T, R> {
+
+		R run(T input) throws QuickAccessServiceException;
+	}
+
+	/**
+	 * Runs the task for each input on its own virtual thread and waits for all of them to finish.
+	 *
+	 * @return the completed futures, in the order of the inputs
+	 */
+	private static <T, R> List<Future<R>> runInParallel(List<T> inputs, Task<T, R> task) {
+		try (var executor = Executors.newThreadPerTaskExecutor(THREAD_FACTORY)) {
+			return inputs.stream().map(input -> executor.submit(() -> task.run(input))).toList();
+		} // closing waits for all tasks
+	}
+
+	private static QuickAccessServiceException combine(String message, List<Throwable> failures) {
+		var exception = new QuickAccessServiceException(message, failures.getFirst());
+		failures.stream().skip(1).forEach(exception::addSuppressed);
+		return exception;
+	}
+
+	private class CompositeQuickAccessEntry implements QuickAccessEntry {
+
+		private final Map<QuickAccessService, QuickAccessEntry> entries; // by delegate
+
+		CompositeQuickAccessEntry(Map<QuickAccessService, QuickAccessEntry> entries) {
+			this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+		}
+
+		/**
+		 * Removes the entry from all services in parallel. If removing fails for some of them, it may be retried, since removing an entry is idempotent.
+		 */
+		@Override
+		public void remove() throws QuickAccessServiceException {
+			var failures = runInParallel(List.copyOf(entries.values()), entry -> {
+				entry.remove();
+				return null;
+			}).stream().filter(future -> future.state() == Future.State.FAILED).map(Future::exceptionNow).toList();
+			if (!failures.isEmpty()) {
+				throw combine("Failed to remove entry from %d of %d quick access services.".formatted(failures.size(), entries.size()), failures);
+			}
+		}
+
+		private CompositeQuickAccess owner() {
+			return CompositeQuickAccess.this;
+		}
+	}
+
+	@CheckAvailability
+	public static boolean isSupported() {
+		return NautilusBookmarks.isSupported() && DolphinPlaces.isSupported();
+	}
+}
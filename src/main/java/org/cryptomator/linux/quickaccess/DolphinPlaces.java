@@ -8,39 +8,33 @@ import org.cryptomator.integrations.quickaccess.QuickAccessService;
 import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.DOMException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import javax.xml.XMLConstants;
-import javax.xml.namespace.QName;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Queue;
+import java.util.SequencedMap;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 /**
  * Implemenation of the {@link QuickAccessService} for KDE desktop environments using Dolphin file browser.
@@ -53,205 +47,292 @@ public class DolphinPlaces extends FileConfiguredQuickAccess implements QuickAcc
 
 	private static final Logger LOG = LoggerFactory.getLogger(DolphinPlaces.class);
 
-	private static final String XBEL_NAMESPACE = "http://www.freedesktop.org/standards/desktop-bookmarks";
 	private static final int MAX_FILE_SIZE = 1 << 20; //1MiB, xml is quite verbose
 	private static final Path PLACES_FILE = Path.of(System.getProperty("user.home"), ".local/share/user-places.xbel");
 
-	private static final Validator XML_VALIDATOR;
+	private static final String EMPTY_PLACES = """
+			<?xml version="1.0" encoding="UTF-8"?>
+			<xbel xmlns:bookmark="http://www.freedesktop.org/standards/desktop-bookmarks"></xbel>
+			""";
 
-	static {
-		SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-		try (var schemaDefinition = DolphinPlaces.class.getResourceAsStream("/xbel-1.0.xsd")) {
-			Source schemaFile = new StreamSource(schemaDefinition);
-			XML_VALIDATOR = factory.newSchema(schemaFile).newValidator();
-		} catch (IOException | SAXException e) {
-			throw new IllegalStateException("Failed to load included XBEL schema definition file.", e);
-		}
+	private static final String WARM_UP_PROPERTY = "cryptomator.integrationsLinux.dolphinPlacesWarmUp";
+	private static final AtomicBoolean WARM_UP_STARTED = new AtomicBoolean();
+
+	// config last written by us, which does not need to be validated again as long as the file is not modified externally (except with ValidationPolicy.FULL); guarded by modifyLock
+	private String cachedConfig;
+	private final LongAdder inputValidations = new LongAdder();
+	private byte[] validatedDigest; // hash of the config last known to be valid, used with ValidationPolicy.ON_CHANGE; guarded by modifyLock
+
+	private final ValidationPolicy validationPolicy;
+
+	/**
+	 * Determines when the places file is validated against the XBEL schema.
+	 * <p>
+	 * Except for {@link #FULL}, a config written by this instance is not validated again as long as the file is not modified externally.
+	 */
+	public enum ValidationPolicy {
+		/**
+		 * Validates the places file before and after each modification, even if it was last written by this instance.
+		 */
+		FULL,
+		/**
+		 * Validates the places file before each modification. Afterwards, only the bookmark created by us is validated.
+		 * Removing bookmarks does not affect the validity, hence the result is not validated.
+		 */
+		INPUT_ONLY,
+		/**
+		 * Like {@link #INPUT_ONLY}, but validates the places file only if its content changed since it was last validated, as determined by its SHA-256 hash.
+		 */
+		ON_CHANGE
 	}
 
 	//SPI constructor
 	public DolphinPlaces() {
-		super(PLACES_FILE, MAX_FILE_SIZE);
+		this(PLACES_FILE, ValidationPolicy.FULL);
 	}
 
 	public DolphinPlaces(Path configFilePath) {
-		super(configFilePath, MAX_FILE_SIZE);
+		this(configFilePath, ValidationPolicy.FULL);
+	}
+
+	public DolphinPlaces(Path configFilePath, ValidationPolicy validationPolicy) {
+		this(configFilePath, validationPolicy, defaultDurability());
+	}
+
+	public DolphinPlaces(Path configFilePath, ValidationPolicy validationPolicy, Durability durability) {
+		super(configFilePath, MAX_FILE_SIZE, durability);
+		this.validationPolicy = validationPolicy;
 	}
 
 	@Override
 	EntryAndConfig addEntryToConfig(String config, Path target, String displayName) throws QuickAccessServiceException {
+		var id = UUID.randomUUID().toString();
+		LOG.trace("Adding bookmark for target: '{}', displayName: '{}', id: '{}'", target, displayName, id);
+		var changedConfig = addBookmarks(config, List.of(new XbelEditor.NewBookmark(target, displayName, id)));
+		return new EntryAndConfig(new DolphinPlacesEntry(id, target, displayName), changedConfig);
+	}
+
+	@Override
+	EntriesAndConfig addEntriesToConfig(String config, SequencedMap<Path, String> targets) throws QuickAccessServiceException {
+		var bookmarks = targets.entrySet().stream().map(target -> new XbelEditor.NewBookmark(target.getKey(), target.getValue(), UUID.randomUUID().toString())).toList();
+		LOG.trace("Adding {} bookmarks at once", bookmarks.size());
+		var changedConfig = addBookmarks(config, bookmarks);
+		var entries = bookmarks.stream().<FileConfiguredQuickAccessEntry>map(bookmark -> new DolphinPlacesEntry(bookmark.id(), bookmark.target(), bookmark.displayName())).toList();
+		return new EntriesAndConfig(entries, changedConfig);
+	}
+
+	private String addBookmarks(String config, List<XbelEditor.NewBookmark> bookmarks) throws QuickAccessServiceException {
 		try {
-			var id = UUID.randomUUID().toString();
-			LOG.trace("Adding bookmark for target: '{}', displayName: '{}', id: '{}'", target, displayName, id);
-			XML_VALIDATOR.validate(new StreamSource(new StringReader(config)));
-			var xmlDocument = loadXmlDocument(config);
-			var nodeList = extractBookmarksByPath(target, xmlDocument);
-			removeStaleBookmarks(nodeList);
-			createBookmark(target, displayName, id, xmlDocument);
-			var changedConfig = documentToString(xmlDocument);
-			XML_VALIDATOR.validate(new StreamSource(new StringReader(changedConfig)));
-			return new EntryAndConfig(new DolphinPlacesEntry(id), changedConfig);
-		} catch (SAXException e) {
+			validateInput(config);
+			var changedConfig = XbelEditor.addBookmarks(config, bookmarks);
+			if (validationPolicy == ValidationPolicy.FULL) {
+				validate(changedConfig);
+			} else {
+				validate(XbelEditor.addBookmarks(EMPTY_PLACES, bookmarks)); // the rest of the document is unchanged
+			}
+			markValid(changedConfig);
+			cacheConfig(changedConfig);
+			return changedConfig;
+		} catch (SAXException | XMLStreamException e) {
 			throw new QuickAccessServiceException("Invalid structure in xbel bookmark file", e);
 		} catch (IOException e) {
 			throw new QuickAccessServiceException("Failed reading/writing the xbel bookmark file", e);
 		}
 	}
 
-	private void removeStaleBookmarks(NodeList nodeList) {
-		for (int i = nodeList.getLength() - 1; i >= 0; i--) {
-			Node node = nodeList.item(i);
-			node.getParentNode().removeChild(node);
-		}
+	@Override
+	String removeEntriesFromConfig(String config, List<FileConfiguredQuickAccessEntry> entries) throws QuickAccessServiceException {
+		var ids = entries.stream().map(entry -> ((DolphinPlacesEntry) entry).id).collect(Collectors.toSet());
+		LOG.trace("Removing {} bookmarks at once", ids.size());
+		return removeBookmarks(config, ids);
 	}
 
-	private NodeList extractBookmarksByPath(Path target, Document xmlDocument) throws QuickAccessServiceException {
+	// streamed like adding, so the formatting of the rest of the file is preserved
+	private String removeBookmarks(String config, Set<String> ids) throws QuickAccessServiceException {
 		try {
-			var xpathFactory = XPathFactory.newInstance();
-			var xpath = xpathFactory.newXPath();
-			xpath.setXPathVariableResolver(v -> {
-				if (v.equals(new QName("uri"))) {
-					return target.toUri().toString();
-				}
-				throw new IllegalArgumentException();
-			});
-			var expression = "/xbel/bookmark[info/metadata[@owner='https://cryptomator.org']][@href=$uri]";
-			return (NodeList) xpath.compile(expression).evaluate(xmlDocument, XPathConstants.NODESET);
-		} catch (XPathExpressionException xee) {
-			throw new QuickAccessServiceException("Invalid XPath expression", xee);
+			var changedConfig = XbelEditor.removeBookmarks(config, bookmark -> bookmark.ownedByUs() && ids.contains(bookmark.id()));
+			if (validationPolicy == ValidationPolicy.FULL) {
+				validate(changedConfig);
+			}
+			markValid(changedConfig);
+			cacheConfig(changedConfig);
+			return changedConfig;
+		} catch (IOException | SAXException | XMLStreamException | IllegalStateException e) {
+			throw new QuickAccessServiceException("Removing entry from KDE places file failed.", e);
 		}
 	}
 
-	private NodeList extractBookmarksById(String id, Document xmlDocument) throws QuickAccessServiceException {
+	@Override
+	String removeOrphanedEntriesFromConfig(String config, Set<FileConfiguredQuickAccessEntry> liveEntries) throws QuickAccessServiceException {
+		var liveIds = liveEntries.stream().map(entry -> ((DolphinPlacesEntry) entry).id).collect(Collectors.toSet());
 		try {
-			var xpathFactory = XPathFactory.newInstance();
-			var xpath = xpathFactory.newXPath();
-			xpath.setXPathVariableResolver(v -> {
-				if (v.equals(new QName("id"))) {
-					return id;
-				}
-				throw new IllegalArgumentException();
-			});
-			var expression = "/xbel/bookmark[info/metadata[@owner='https://cryptomator.org']][info/metadata/id[text()=$id]]";
-			return (NodeList) xpath.compile(expression).evaluate(xmlDocument, XPathConstants.NODESET);
-		} catch (XPathExpressionException xee) {
-			throw new QuickAccessServiceException("Invalid XPath expression", xee);
+			validateInput(config);
+			var changedConfig = XbelEditor.removeBookmarks(config, bookmark -> bookmark.ownedByUs() && !liveIds.contains(bookmark.id()) && !isExistingDirectory(bookmark.href()));
+			if (changedConfig != config) {
+				LOG.debug("Removed orphaned Cryptomator bookmarks.");
+				markValid(changedConfig); // removing bookmarks does not affect validity
+				cacheConfig(changedConfig);
+			}
+			return changedConfig;
+		} catch (SAXException | XMLStreamException e) {
+			throw new QuickAccessServiceException("Invalid structure in xbel bookmark file", e);
+		} catch (IOException e) {
+			throw new QuickAccessServiceException("Failed reading the xbel bookmark file", e);
 		}
 	}
 
-	private Document loadXmlDocument(String config) throws QuickAccessServiceException {
+	private static boolean isExistingDirectory(String href) {
 		try {
-			var builderFactory = DocumentBuilderFactory.newInstance();
-			builderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-			builderFactory.setXIncludeAware(false);
-			builderFactory.setExpandEntityReferences(false);
-			builderFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
-			builderFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
-			builderFactory.setNamespaceAware(true);
-			DocumentBuilder builder = builderFactory.newDocumentBuilder();
-			// Prevent external entities from being resolved
-			builder.setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
-			return builder.parse(new ByteArrayInputStream(config.getBytes(StandardCharsets.UTF_8)));
-		} catch (IOException | SAXException | ParserConfigurationException e) {
-			throw new QuickAccessServiceException("Error while loading xml file", e);
+			return Files.isDirectory(Path.of(URI.create(href)));
+		} catch (IllegalArgumentException | FileSystemNotFoundException e) {
+			return true; // not a local path, so we can't tell
 		}
 	}
 
-	private String documentToString(Document xmlDocument) throws QuickAccessServiceException {
+	/**
+	 * Validates the given document against the XBEL schema.
+	 * <p>
+	 * Validators are not thread-safe, so each call uses one exclusively, taken from a pool shared by all instances.
+	 *
+	 * @param xml the XBEL document
+	 * @throws SAXException if the document is not valid
+	 * @throws IOException if reading the document fails
+	 */
+	private static void validate(String xml) throws SAXException, IOException {
+		var validator = XbelSchema.VALIDATORS.poll();
+		if (validator == null) {
+			validator = XbelSchema.SCHEMA.newValidator();
+		}
 		try {
-			var buf = new StringWriter();
-			Transformer transformer = TransformerFactory.newInstance().newTransformer();
-			transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, "");
-			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, "");
-			transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-			transformer.setOutputProperty(OutputKeys.ENCODING, StandardCharsets.UTF_8.name());
-			transformer.transform(new DOMSource(xmlDocument), new StreamResult(buf));
-			var content = buf.toString();
-			content = content.replaceFirst("\\s*standalone=\"(yes|no)\"", "");
-			content = content.replaceFirst("<!DOCTYPE xbel PUBLIC \"\" \"\">","<!DOCTYPE xbel>");
-			return content;
-		} catch (TransformerException e) {
-			throw new QuickAccessServiceException("Error while serializing document to string", e);
+			validator.validate(new StreamSource(new StringReader(xml)));
+		} finally {
+			validator.reset();
+			XbelSchema.VALIDATORS.offer(validator);
 		}
 	}
 
 	/**
-	 *
-	 * Adds a xml bookmark element to the specified xml document
-	 *
-	 * <pre>{@code
-	 * <bookmark href="file:///home/someuser/folder1/">
-	 *   <title>integrations-linux</title>
-	 *   <info>
-	 *     <metadata owner="http://freedesktop.org">
-	 *       <bookmark:icon name="drive-harddisk-encrypted"/>
-	 *     </metadata>
-	 *     <metadata owner="https://cryptomator.org">
-	 *       <id>sldkf-sadf-sadf-sadf</id>
-	 *     </metadata>
-	 *   </info>
-	 * </bookmark>
-	 * }</pre>
-	 *
-	 * @param target The mount point of the vault
-	 * @param displayName Caption of the vault link in dolphin
-	 * @param xmlDocument The xbel document to which the bookmark should be added
-	 *
-	 * @throws QuickAccessServiceException if the bookmark could not be created
+	 * The XBEL schema, compiled when first used.
+	 * <p>
+	 * The JVM initializes this holder class lazily and exactly once, so loading {@link DolphinPlaces} (e.g. by the {@link java.util.ServiceLoader} on desktops without Dolphin)
+	 * does not pay for parsing and compiling the schema.
 	 */
-	private void createBookmark(Path target, String displayName, String id, Document xmlDocument) throws QuickAccessServiceException {
+	private static final class XbelSchema {
+
+		private static final Schema SCHEMA = compile(); // thread-safe, unlike the validators created from it
+		private static final Queue<Validator> VALIDATORS = new ConcurrentLinkedQueue<>();
+
+		private static Schema compile() {
+			SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+			try (var schemaDefinition = DolphinPlaces.class.getResourceAsStream("/xbel-1.0.xsd")) {
+				Source schemaFile = new StreamSource(schemaDefinition);
+				return factory.newSchema(schemaFile);
+			} catch (IOException | SAXException e) {
+				throw new IllegalStateException("Failed to load included XBEL schema definition file.", e);
+			}
+		}
+	}
+
+	/**
+	 * Compiles the XBEL schema and creates a validator on a background thread, so the first modification of the places file does not have to wait for it.
+	 * Does nothing if already started.
+	 */
+	static void warmUpInBackground() {
+		if (WARM_UP_STARTED.compareAndSet(false, true)) {
+			Thread.ofVirtual().name("dolphin-places-warmup").start(() -> {
+				try {
+					XbelSchema.VALIDATORS.offer(XbelSchema.SCHEMA.newValidator());
+					LOG.debug("Compiled XBEL schema in background.");
+				} catch (ExceptionInInitializerError e) {
+					LOG.warn("Failed to compile XBEL schema.", e.getCause());
+				}
+			});
+		}
+	}
+
+	private void validateInput(String config) throws SAXException, IOException {
+		if (validationPolicy != ValidationPolicy.FULL && isWrittenByUs(config)) {
+			return;
+		}
+		if (validationPolicy == ValidationPolicy.ON_CHANGE) {
+			var digest = digest(config);
+			if (!MessageDigest.isEqual(digest, validatedDigest)) {
+				validate(config);
+				inputValidations.increment();
+				validatedDigest = digest;
+			}
+		} else {
+			validate(config);
+			inputValidations.increment();
+		}
+	}
+
+	/**
+	 * @return Number of times the places file was validated before modifying it
+	 */
+	long getInputValidationCount() {
+		return inputValidations.sum();
+	}
+
+	private void markValid(String config) {
+		if (validationPolicy == ValidationPolicy.ON_CHANGE) {
+			validatedDigest = digest(config);
+		}
+	}
+
+	private static byte[] digest(String config) {
 		try {
-			var bookmark = xmlDocument.createElement("bookmark");
-			var title = xmlDocument.createElement("title");
-			var info = xmlDocument.createElement("info");
-			var metadataBookmark = xmlDocument.createElement("metadata");
-			var metadataOwner = xmlDocument.createElement("metadata");
-			var bookmarkIcon = xmlDocument.createElementNS(XBEL_NAMESPACE, "bookmark:icon");
-			var idElem = xmlDocument.createElement("id");
-			bookmark.setAttribute("href", target.toUri().toString());
-			title.setTextContent(displayName);
-			bookmark.appendChild(title);
-			bookmark.appendChild(info);
-			info.appendChild(metadataBookmark);
-			info.appendChild(metadataOwner);
-			metadataBookmark.appendChild(bookmarkIcon);
-			metadataOwner.appendChild(idElem);
-			metadataBookmark.setAttribute("owner", "http://freedesktop.org");
-			bookmarkIcon.setAttribute("name","drive-harddisk-encrypted");
-			metadataOwner.setAttribute("owner", "https://cryptomator.org");
-			idElem.setTextContent(id);
-			xmlDocument.getDocumentElement().appendChild(bookmark);
-		} catch (DOMException | IllegalArgumentException e) {
-			throw new QuickAccessServiceException("Error while creating bookmark for target: " + target, e);
+			return MessageDigest.getInstance("SHA-256").digest(config.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Every implementation of the Java platform is required to support SHA-256.", e);
 		}
 	}
 
+	private boolean isWrittenByUs(String config) {
+		// identity check on purpose: the superclass hands out the same instance as long as the file is unchanged
+		return config == cachedConfig;
+	}
+
+	private void cacheConfig(String config) {
+		cachedConfig = config;
+	}
+
 	private class DolphinPlacesEntry extends FileConfiguredQuickAccessEntry implements QuickAccessEntry {
 
 		private final String id;
 
-		DolphinPlacesEntry(String id) {
+		DolphinPlacesEntry(String id, Path target, String displayName) {
+			super(target, displayName);
 			this.id = id;
 		}
 
+		@Override
+		boolean isContainedIn(String config) {
+			return config.contains(id);
+		}
+
+		@Override
+		String restoreEntryToConfig(String config) throws QuickAccessServiceException {
+			return addBookmarks(config, List.of(new XbelEditor.NewBookmark(target, displayName, id)));
+		}
+
 		@Override
 		public String removeEntryFromConfig(String config) throws QuickAccessServiceException {
-			try {
-				var xmlDocument = loadXmlDocument(config);
-				var nodeList = extractBookmarksById(id, xmlDocument);
-				removeStaleBookmarks(nodeList);
-				var changedConfig = documentToString(xmlDocument);
-				XML_VALIDATOR.validate(new StreamSource(new StringReader(changedConfig)));
-				return changedConfig;
-			} catch (IOException | SAXException | IllegalStateException e) {
-				throw new QuickAccessServiceException("Removing entry from KDE places file failed.", e);
-			}
+			return removeBookmarks(config, Set.of(id));
 		}
 	}
 
+	/**
+	 * Checks whether Dolphin is used. If so and the system property {@value WARM_UP_PROPERTY} is {@code true}, the XBEL schema is compiled in the background.
+	 *
+	 * @return {@code true} if the places file exists
+	 */
 	@CheckAvailability
 	public static boolean isSupported() {
-		return Files.exists(PLACES_FILE);
+		var supported = Files.exists(PLACES_FILE);
+		if (supported && Boolean.getBoolean(WARM_UP_PROPERTY)) {
+			warmUpInBackground();
+		}
+		return supported;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package org.cryptomator.linux.quickaccess;
+
+/**
+ * Determines whether modifications of a quick-access config file are forced to the storage device before they are considered done.
+ * <p>
+ * The config file is always replaced atomically by renaming a tmp file. Without forcing, a power loss shortly after the rename may however
+ * leave behind an empty or truncated file, since the file system may persist the rename before the content of the tmp file.
+ */
+public enum Durability {
+	/**
+	 * Leaves flushing to the operating system.
+	 */
+	NONE,
+	/**
+	 * Forces the tmp file before and its directory after the rename on every modification.
+	 */
+	FSYNC,
+	/**
+	 * Like {@link #FSYNC}, but modifications requested concurrently while another one is persisted are applied together
+	 * and forced once, so bursts of modifications (e.g. when mounting many vaults) do not wait for one flush each.
+	 */
+	GROUP_COMMIT
+}
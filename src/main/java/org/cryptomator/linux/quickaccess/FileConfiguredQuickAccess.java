@@ -6,29 +6,92 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.SequencedMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 abstract class FileConfiguredQuickAccess implements QuickAccessService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(FileConfiguredQuickAccess.class);
+	private static final String DURABILITY_PROPERTY = "cryptomator.integrationsLinux.quickAccessDurability";
+
+	static final Duration BATCH_WINDOW = Duration.ofMillis(100);
+	private static final int MAX_WRITE_ATTEMPTS = 5;
+	private static final long BACKOFF_BASE_MILLIS = 10;
+	private static final Duration FILE_LOCK_TIMEOUT = Duration.ofSeconds(10);
+	// file locks are held per JVM, so instances for the same file (e.g. of CompositeQuickAccess and the ServiceLoader) have to exclude each other in-process
+	private static final ConcurrentMap<Path, Lock> MODIFY_LOCKS = new ConcurrentHashMap<>();
+	private static final ScheduledExecutorService BATCH_SCHEDULER = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("quickaccess-batch").factory());
 
 	private final int maxFileSize;
 	private final Path configFile;
 	private final Path tmpFile;
-	private final Lock modifyLock = new ReentrantReadWriteLock().writeLock();
+	private final Path lockFile;
+	private final Durability durability;
+	private final Lock modifyLock; // shared by all instances for the same config file
+	private ConfigSnapshot snapshot; // guarded by modifyLock
+	private final List<PendingChange> pendingChanges = new ArrayList<>(); // guarded by itself
+	private final Queue<PendingChange> commitQueue = new ConcurrentLinkedQueue<>(); // synchronous changes waiting for the next group commit
+	private final LongAdder lockContentions = new LongAdder();
+	private final LongAdder writeConflicts = new LongAdder();
+	private final LatencyHistogram commitLatencies = new LatencyHistogram();
+	private final LatencyHistogram forceLatencies = new LatencyHistogram();
+	private final Set<FileConfiguredQuickAccessEntry> liveEntries = ConcurrentHashMap.newKeySet();
 
-	FileConfiguredQuickAccess(Path configFile, int maxFileSize) {
+	FileConfiguredQuickAccess(Path configFile, int maxFileSize, Durability durability) {
 		this.configFile = configFile;
 		this.maxFileSize = maxFileSize;
+		this.durability = durability;
 		this.tmpFile = configFile.resolveSibling("." + configFile.getFileName() + ".cryptomator.tmp");
-		Runtime.getRuntime().addShutdownHook(new Thread(this::cleanup));
+		this.lockFile = configFile.resolveSibling("." + configFile.getFileName() + ".cryptomator.lock");
+		this.modifyLock = MODIFY_LOCKS.computeIfAbsent(configFile.toAbsolutePath().normalize(), _ -> {
+			Runtime.getRuntime().addShutdownHook(new Thread(this::cleanup));
+			return new ReentrantReadWriteLock().writeLock();
+		});
+	}
+
+	/**
+	 * @return the durability configured via the system property {@value DURABILITY_PROPERTY}, defaulting to {@link Durability#NONE}
+	 * as forcing the file is expensive on network file systems, e.g. NFS mounted home directories
+	 */
+	static Durability defaultDurability() {
+		var value = System.getProperty(DURABILITY_PROPERTY, Durability.NONE.name());
+		try {
+			return Durability.valueOf(value);
+		} catch (IllegalArgumentException e) {
+			LOG.warn("Invalid value {} for {}. Using {}.", value, DURABILITY_PROPERTY, Durability.NONE);
+			return Durability.NONE;
+		}
 	}
 
 	/**
@@ -43,69 +106,811 @@ abstract class FileConfiguredQuickAccess implements QuickAccessService {
 	@Override
 	public QuickAccessEntry add(Path target, String displayName) throws QuickAccessServiceException {
 		try {
-			modifyLock.lock();
-			checkFileSize();
-			var entryAndConfig = addEntryToConfig(readConfig(), target, displayName);
-			persistConfig(entryAndConfig.config());
-			return entryAndConfig.entry();
+			var entry = unwrap(commit(addChange(target, displayName)));
+			liveEntries.add(entry);
+			return entry;
 		} catch (IOException e) {
 			throw new QuickAccessServiceException("Failed to add entry to %s.".formatted(configFile), e);
+		}
+	}
+
+	/**
+	 * Adds several vault paths to the quick-access config file at once.
+	 * <p>
+	 * The config file is read, modified and validated once and replaced by a single atomic rename, no matter how many entries are added,
+	 * so unlocking many vaults at once costs little more than unlocking a single one.
+	 *
+	 * @param targets The mount points of the vaults, mapped to the captions of their links
+	 * @return Cleanup references for removal of the vault links, in the order of the targets
+	 * @throws QuickAccessServiceException If the entries could not be added to the quick-access config file, in which case none of them was added
+	 * @see #add(Path, String)
+	 */
+	public List<QuickAccessEntry> addAll(SequencedMap<Path, String> targets) throws QuickAccessServiceException {
+		if (targets.isEmpty()) {
+			return List.of();
+		}
+		var added = new ArrayList<FileConfiguredQuickAccessEntry>();
+		try {
+			unwrap(commit(addAllChange(targets, added)));
+		} catch (IOException e) {
+			throw new QuickAccessServiceException("Failed to add entries to %s.".formatted(configFile), e);
+		}
+		liveEntries.addAll(added);
+		return List.copyOf(added);
+	}
+
+	/**
+	 * Adds the vault path to the quick-access config file as part of a batch.
+	 * <p>
+	 * All changes requested within {@link #BATCH_WINDOW} are applied to the config file at once and written in a single transaction,
+	 * so mounting many vaults at the same time does not cause the file manager to reload its config for each of them.
+	 *
+	 * @param target The mount point of the vault
+	 * @param displayName Caption of the vault link
+	 * @return A future completing with the cleanup reference as soon as the batch is persisted
+	 * @see #add(Path, String)
+	 */
+	public CompletableFuture<QuickAccessEntry> addAsync(Path target, String displayName) {
+		var future = new CompletableFuture<FileConfiguredQuickAccessEntry>();
+		enqueue(new PendingChange(addChange(target, displayName), future, System.nanoTime()));
+		return future.thenApply(entry -> {
+			liveEntries.add(entry);
+			return entry;
+		});
+	}
+
+	/**
+	 * Removes an entry from the quick-access config file as part of a batch.
+	 *
+	 * @param entry An entry previously returned by this service
+	 * @return A future completing as soon as the batch is persisted
+	 * @throws IllegalArgumentException If the entry does not belong to this service
+	 * @see #addAsync(Path, String)
+	 * @see QuickAccessEntry#remove()
+	 */
+	public CompletableFuture<Void> removeAsync(QuickAccessEntry entry) throws IllegalArgumentException {
+		if (!(entry instanceof FileConfiguredQuickAccessEntry e) || e.owner() != this) {
+			throw new IllegalArgumentException("Entry does not belong to " + getClass().getSimpleName());
+		}
+		return e.removeAsync();
+	}
+
+	/**
+	 * Removes several entries from the quick-access config file at once, the counterpart of {@link #addAll(SequencedMap)}.
+	 * <p>
+	 * The config file is read, modified and replaced once, no matter how many entries are removed. Entries already removed are skipped.
+	 *
+	 * @param entries Entries previously returned by this service
+	 * @throws IllegalArgumentException If an entry does not belong to this service
+	 * @throws QuickAccessServiceException If the entries could not be removed from the quick-access config file, in which case none of them was removed
+	 * @see QuickAccessEntry#remove()
+	 */
+	public void removeAll(Collection<? extends QuickAccessEntry> entries) throws IllegalArgumentException, QuickAccessServiceException {
+		var toRemove = new ArrayList<FileConfiguredQuickAccessEntry>(entries.size());
+		for (var entry : entries) {
+			if (!(entry instanceof FileConfiguredQuickAccessEntry e) || e.owner() != this) {
+				throw new IllegalArgumentException("Entry does not belong to " + getClass().getSimpleName());
+			}
+			if (!e.isRemoved) {
+				toRemove.add(e);
+			}
+		}
+		if (toRemove.isEmpty()) {
+			return;
+		}
+		try {
+			unwrap(commit(removeAllChange(toRemove)));
+		} catch (IOException e) {
+			throw new QuickAccessServiceException("Failed to remove entries from %s.".formatted(configFile), e);
+		}
+		for (var entry : toRemove) {
+			entry.isRemoved = true;
+			liveEntries.remove(entry);
+		}
+	}
+
+	record EntryAndConfig(FileConfiguredQuickAccessEntry entry, String config) {
+	}
+
+	record EntriesAndConfig(List<FileConfiguredQuickAccessEntry> entries, String config) {
+	}
+
+	/**
+	 * @param entry the entry affected by the edit
+	 * @param edit the edit to apply or {@code null} if the file does not need to be changed
+	 */
+	record EntryAndLineEdit(FileConfiguredQuickAccessEntry entry, LineEdit edit) {
+	}
+
+	/**
+	 * Modification of the config file applied line by line while streaming it. Used for files exceeding the limit for processing them in memory.
+	 */
+	interface LineEdit {
+
+		/**
+		 * Processes a line of the config file.
+		 *
+		 * @param line the line without line terminator
+		 * @param next receiver of the resulting lines, if any
+		 * @throws IOException if passing on lines fails
+		 */
+		void line(String line, LineSink next) throws IOException;
+
+		/**
+		 * Invoked after the last line, e.g. to append lines.
+		 *
+		 * @param next receiver of further lines
+		 * @throws IOException if passing on lines fails
+		 */
+		default void end(LineSink next) throws IOException {
+		}
+	}
+
+	@FunctionalInterface
+	interface LineSink {
+
+		void accept(String line) throws IOException;
+	}
+
+	/**
+	 * A change of the config file, applicable to its content in memory and, if supported by the subclass, while streaming it.
+	 *
+	 * @param inMemory applies the change to the whole content
+	 * @param streaming creates an equivalent line edit or returns {@code null} if the change cannot be applied line by line, which fails only this change
+	 */
+	private record ConfigChange(InMemoryChange inMemory, StreamingChange streaming) {
+	}
+
+	@FunctionalInterface
+	private interface InMemoryChange {
+
+		EntryAndConfig apply(String config) throws QuickAccessServiceException;
+	}
+
+	@FunctionalInterface
+	private interface StreamingChange {
+
+		EntryAndLineEdit get() throws QuickAccessServiceException;
+	}
+
+	private ConfigChange addChange(Path target, String displayName) {
+		return new ConfigChange(config -> addEntryToConfig(config, target, displayName), () -> addEntryAsLineEdit(target, displayName));
+	}
+
+	/**
+	 * @param added receives the new entries, as soon as the change got applied
+	 */
+	private ConfigChange addAllChange(SequencedMap<Path, String> targets, List<FileConfiguredQuickAccessEntry> added) {
+		return new ConfigChange(config -> {
+			var entriesAndConfig = addEntriesToConfig(config, targets);
+			added.clear(); // the change may be applied again if the file was modified concurrently
+			added.addAll(entriesAndConfig.entries());
+			return new EntryAndConfig(null, entriesAndConfig.config());
+		}, () -> {
+			var entries = new ArrayList<FileConfiguredQuickAccessEntry>();
+			var edits = new ArrayList<LineEdit>();
+			for (var target : targets.entrySet()) {
+				var entryAndEdit = addEntryAsLineEdit(target.getKey(), target.getValue());
+				if (entryAndEdit == null) {
+					return null;
+				}
+				entries.add(entryAndEdit.entry());
+				edits.add(entryAndEdit.edit());
+			}
+			added.clear();
+			added.addAll(entries);
+			return new EntryAndLineEdit(null, compose(edits));
+		});
+	}
+
+	private ConfigChange removeAllChange(List<FileConfiguredQuickAccessEntry> entries) {
+		return new ConfigChange(config -> {
+			var remaining = entries.stream().filter(entry -> !entry.isRemoved).toList(); // may have been removed individually in the meantime
+			return new EntryAndConfig(null, remaining.isEmpty() ? config : removeEntriesFromConfig(config, remaining));
+		}, () -> {
+			var edits = new ArrayList<LineEdit>();
+			for (var entry : entries) {
+				if (entry.isRemoved) {
+					continue;
+				}
+				var edit = entry.removeEntryAsLineEdit();
+				if (edit == null) {
+					return null;
+				}
+				edits.add(edit);
+			}
+			return new EntryAndLineEdit(null, edits.isEmpty() ? null : compose(edits));
+		});
+	}
+
+	private static FileConfiguredQuickAccessEntry unwrap(Object outcome) throws QuickAccessServiceException {
+		return switch (outcome) {
+			case QuickAccessServiceException e -> throw e;
+			case RuntimeException e -> throw e;
+			case null -> null;
+			default -> (FileConfiguredQuickAccessEntry) outcome;
+		};
+	}
+
+	private record PendingChange(ConfigChange change, CompletableFuture<FileConfiguredQuickAccessEntry> future, long requestedNanos) {
+	}
+
+	/**
+	 * Applies a single change and persists it before returning.
+	 * <p>
+	 * With {@link Durability#GROUP_COMMIT}, the change is queued and whoever acquires the lock first applies all queued changes in one transaction,
+	 * so concurrent callers share the cost of forcing the file to disk. Callers whose change got applied by another thread in the meantime just return its outcome.
+	 *
+	 * @param change the change to apply
+	 * @return either the affected entry or the exception thrown by the change
+	 * @throws IOException if the file could not be read, locked or written
+	 */
+	private Object commit(ConfigChange change) throws IOException {
+		var requested = System.nanoTime();
+		if (durability != Durability.GROUP_COMMIT) {
+			try {
+				var outcome = transact(List.of(change)).getFirst();
+				if (outcome instanceof IOException e) {
+					throw e;
+				}
+				return outcome; // null for changes not affecting a single entry
+			} finally {
+				commitLatencies.record(System.nanoTime() - requested);
+			}
+		}
+		var pending = new PendingChange(change, new CompletableFuture<>(), requested);
+		commitQueue.add(pending);
+		modifyLock.lock();
+		try {
+			if (!pending.future().isDone()) {
+				var group = new ArrayList<PendingChange>();
+				for (PendingChange next; (next = commitQueue.poll()) != null; ) {
+					group.add(next);
+				}
+				try {
+					complete(group, transact(group.stream().map(PendingChange::change).toList()));
+				} catch (IOException | RuntimeException e) {
+					group.forEach(p -> p.future().completeExceptionally(e));
+				}
+				LOG.trace("Committed {} changes to {} at once.", group.size(), configFile);
+			}
 		} finally {
 			modifyLock.unlock();
 		}
+		var future = pending.future();
+		if (future.state() == Future.State.SUCCESS) {
+			return future.resultNow();
+		}
+		return switch (future.exceptionNow()) {
+			case IOException e -> throw e;
+			case Throwable e -> e;
+		};
 	}
 
-	record EntryAndConfig(FileConfiguredQuickAccessEntry entry, String config) {
+	private void enqueue(PendingChange change) {
+		synchronized (pendingChanges) {
+			pendingChanges.add(change);
+			if (pendingChanges.size() == 1) { // first change of a new batch
+				BATCH_SCHEDULER.schedule(() -> Thread.ofVirtual().start(this::applyPendingChanges), BATCH_WINDOW.toMillis(), TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * Applies all pending changes one after another to the config and persists the result once.
+	 * <p>
+	 * A change failing to apply only fails its own future. If persisting fails, all applied changes fail.
+	 */
+	private void applyPendingChanges() {
+		List<PendingChange> batch;
+		synchronized (pendingChanges) {
+			batch = List.copyOf(pendingChanges);
+			pendingChanges.clear();
+		}
+		List<Object> outcomes;
+		try {
+			outcomes = transact(batch.stream().map(PendingChange::change).toList());
+		} catch (IOException | RuntimeException e) {
+			var exception = new QuickAccessServiceException("Failed to update %s.".formatted(configFile), e);
+			batch.forEach(pending -> pending.future().completeExceptionally(exception));
+			return;
+		}
+		LOG.debug("Applied {} changes to {} at once.", batch.size(), configFile);
+		complete(batch, outcomes);
+	}
+
+	private void complete(List<PendingChange> changes, List<Object> outcomes) {
+		var now = System.nanoTime();
+		for (int i = 0; i < changes.size(); i++) {
+			var change = changes.get(i);
+			commitLatencies.record(now - change.requestedNanos());
+			if (outcomes.get(i) instanceof Throwable e) {
+				change.future().completeExceptionally(e);
+			} else {
+				change.future().complete((FileConfiguredQuickAccessEntry) outcomes.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Starts watching the config file for modifications by other programs. After each burst of modifications, the file is reconciled in the background:
+	 * <ul>
+	 *     <li>entries added by this service, which have not been removed yet and whose target still exists, are restored if they went missing</li>
+	 *     <li>entries left behind by previous runs (e.g. after a crash), whose target does not exist anymore, are removed, if the format allows to identify them</li>
+	 * </ul>
+	 *
+	 * @param debounce Time without further modifications to wait before reconciling
+	 * @return A handle to stop watching
+	 * @throws IOException If the directory of the config file cannot be watched
+	 */
+	public QuickAccessReconciler startReconciling(Duration debounce) throws IOException {
+		return new QuickAccessReconciler(this, configFile, debounce);
+	}
+
+	/**
+	 * Reconciles the config file with the entries of this service.
+	 * <p>
+	 * Files exceeding the limit for processing them in memory are left as they are.
+	 *
+	 * @throws IOException If reading or writing the config file fails
+	 * @throws QuickAccessServiceException If the config file cannot be reconciled, e.g. because it is invalid
+	 * @see #startReconciling(Duration)
+	 */
+	void reconcile() throws IOException, QuickAccessServiceException {
+		var reconcile = new ConfigChange(config -> new EntryAndConfig(null, reconcileConfig(config)), () -> {
+			LOG.debug("Not reconciling {}, since it exceeds size of {} bytes.", configFile, maxFileSize);
+			return new EntryAndLineEdit(null, null);
+		});
+		unwrap(commit(reconcile));
+	}
+
+	private String reconcileConfig(String config) throws QuickAccessServiceException {
+		var reconciled = config;
+		for (var entry : liveEntries) {
+			if (!entry.isRemoved && !entry.isContainedIn(reconciled) && Files.isDirectory(entry.target)) {
+				LOG.debug("Restoring entry for {} in {}", entry.target, configFile);
+				reconciled = entry.restoreEntryToConfig(reconciled);
+			}
+		}
+		return removeOrphanedEntriesFromConfig(reconciled, Collections.unmodifiableSet(liveEntries));
+	}
+
+	/**
+	 * Removes entries added by any Cryptomator instance, which are neither among the given live entries nor point to an existing directory.
+	 * <p>
+	 * Implementations unable to distinguish entries created by Cryptomator from other entries must not remove anything, which is the default.
+	 *
+	 * @param config the config
+	 * @param liveEntries entries added by this service and not yet removed
+	 * @return the config without orphaned entries or the very same instance if there are none
+	 * @throws QuickAccessServiceException if the config cannot be processed
+	 */
+	String removeOrphanedEntriesFromConfig(String config, Set<FileConfiguredQuickAccessEntry> liveEntries) throws QuickAccessServiceException {
+		return config;
+	}
+
+	/**
+	 * @return Number of times the lock file was held by another process when trying to modify the config file
+	 */
+	public long getLockContentionCount() {
+		return lockContentions.sum();
+	}
+
+	/**
+	 * @return Number of times the config file was modified concurrently by another program (not honoring the lock file), so that the modification had to be retried
+	 */
+	public long getWriteConflictCount() {
+		return writeConflicts.sum();
+	}
+
+	/**
+	 * @return Durability of modifications of the config file
+	 */
+	public Durability getDurability() {
+		return durability;
+	}
+
+	/**
+	 * @return Latencies from requesting a modification until it is persisted, including waiting for locks, batches and forcing the file to disk
+	 */
+	public LatencyHistogram getCommitLatencies() {
+		return commitLatencies;
+	}
+
+	/**
+	 * @return Latencies of forcing the config file and its directory to disk per written transaction. Empty with {@link Durability#NONE}.
+	 */
+	public LatencyHistogram getForceLatencies() {
+		return forceLatencies;
+	}
+
+	/**
+	 * Applies the changes one after another to the config file and writes the result once, while guarding the file against concurrent modifications.
+	 * <p>
+	 * Other instances of this class, also from other processes, are excluded by an advisory lock on a sidecar lock file.
+	 * The empty lock file is left in place deliberately: deleting it while another process waits for its lock would let a third one lock a new file in parallel.
+	 * Since file managers do not know about that lock, the config file is additionally checked to be unchanged since reading it right before it gets replaced.
+	 * If it was changed, the changes are applied again with an exponential backoff.
+	 * <p>
+	 * Files up to the size limit are processed in memory. Larger files are streamed line by line, if all changes support it.
+	 *
+	 * @param changes the changes to apply
+	 * @return per change either the affected entry or the exception thrown by it (or an {@link IOException} if it cannot be streamed),
+	 * which does not prevent the other changes from being applied
+	 * @throws IOException if the file could not be read, locked or written, or kept being modified concurrently
+	 */
+	private List<Object> transact(List<ConfigChange> changes) throws IOException {
+		modifyLock.lock(); // file locks are held per JVM, so threads and other instances for the same file need to be excluded separately
+		try (var lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE); //
+			 var _ = lockConfigFile(lockChannel)) {
+			for (int attempt = 1; ; attempt++) {
+				var outcomes = new ArrayList<>(changes.size());
+				var attrs = Files.readAttributes(configFile, BasicFileAttributes.class);
+				var written = attrs.size() > maxFileSize ? streamChanges(changes, new ConfigSnapshot(null, attrs), outcomes) : applyChanges(changes, outcomes);
+				if (written) {
+					return outcomes;
+				}
+				writeConflicts.increment();
+				if (attempt == MAX_WRITE_ATTEMPTS) {
+					throw new IOException("File %s was modified concurrently %d times in a row".formatted(configFile, attempt));
+				}
+				LOG.debug("File {} was modified concurrently, retrying.", configFile);
+				backoff(attempt);
+			}
+		} finally {
+			modifyLock.unlock();
+		}
+	}
+
+	/**
+	 * @return {@code false} if the file was modified concurrently and nothing was written
+	 */
+	private boolean applyChanges(List<ConfigChange> changes, List<Object> outcomes) throws IOException {
+		var initialConfig = readConfig();
+		var expected = snapshot;
+		var config = initialConfig;
+		for (var change : changes) {
+			try {
+				var entryAndConfig = change.inMemory().apply(config);
+				config = entryAndConfig.config();
+				outcomes.add(entryAndConfig.entry());
+			} catch (QuickAccessServiceException | RuntimeException e) {
+				outcomes.add(e);
+			}
+		}
+		if (config == initialConfig) {
+			return true; // nothing to write
+		}
+		Files.writeString(tmpFile, config, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		return replaceConfig(expected, config);
+	}
+
+	/**
+	 * @return {@code false} if the file was modified concurrently and nothing was written
+	 */
+	private boolean streamChanges(List<ConfigChange> changes, ConfigSnapshot expected, List<Object> outcomes) throws IOException {
+		var edits = new ArrayList<LineEdit>(changes.size());
+		for (var change : changes) {
+			try {
+				var entryAndEdit = change.streaming().get();
+				if (entryAndEdit == null) {
+					outcomes.add(new IOException("File %s exceeds size of %d bytes".formatted(configFile, maxFileSize))); // fails only this change
+					continue;
+				}
+				if (entryAndEdit.edit() != null) {
+					edits.add(entryAndEdit.edit());
+				}
+				outcomes.add(entryAndEdit.entry());
+			} catch (QuickAccessServiceException | RuntimeException e) {
+				outcomes.add(e);
+			}
+		}
+		if (edits.isEmpty()) {
+			return true; // nothing to write
+		}
+		var edit = compose(edits);
+		try (var reader = Files.newBufferedReader(configFile, StandardCharsets.UTF_8); //
+			 var writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			LineSink sink = line -> {
+				writer.write(line);
+				writer.write('\n');
+			};
+			String line;
+			while ((line = reader.readLine()) != null) {
+				edit.line(line, sink);
+			}
+			edit.end(sink);
+		}
+		return replaceConfig(expected, null);
+	}
+
+	/**
+	 * Chains the edits, so each one receives the lines emitted by its predecessor.
+	 */
+	private static LineEdit compose(List<LineEdit> edits) {
+		return new LineEdit() {
+
+			private LineSink next;
+			private LineSink[] stages; // stages[i] feeds edit i, the last one is next
+
+			private LineSink[] stages(LineSink next) {
+				if (next != this.next) {
+					stages = new LineSink[edits.size() + 1];
+					stages[edits.size()] = next;
+					for (int i = edits.size() - 1; i >= 0; i--) {
+						var edit = edits.get(i);
+						var successor = stages[i + 1];
+						stages[i] = line -> edit.line(line, successor);
+					}
+					this.next = next;
+				}
+				return stages;
+			}
+
+			@Override
+			public void line(String line, LineSink next) throws IOException {
+				stages(next)[0].accept(line);
+			}
+
+			@Override
+			public void end(LineSink next) throws IOException {
+				var stages = stages(next);
+				for (int i = 0; i < edits.size(); i++) {
+					edits.get(i).end(stages[i + 1]);
+				}
+			}
+		};
+	}
+
+	private FileLock lockConfigFile(FileChannel lockChannel) throws IOException {
+		var lock = tryLock(lockChannel);
+		if (lock != null) {
+			return lock;
+		}
+		lockContentions.increment();
+		var deadline = System.nanoTime() + FILE_LOCK_TIMEOUT.toNanos();
+		for (int attempt = 1; lock == null; attempt++) {
+			if (System.nanoTime() - deadline > 0) {
+				throw new IOException("Timed out waiting for lock on %s".formatted(lockFile));
+			}
+			backoff(Math.min(attempt, 6));
+			lock = tryLock(lockChannel);
+		}
+		return lock;
+	}
+
+	private static FileLock tryLock(FileChannel lockChannel) throws IOException {
+		try {
+			return lockChannel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			return null; // held by another instance for the same file within this JVM
+		}
+	}
+
+	private static void backoff(int attempt) throws InterruptedIOException {
+		var delay = BACKOFF_BASE_MILLIS << (attempt - 1);
+		try {
+			Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to modify config file");
+		}
 	}
 
 	abstract EntryAndConfig addEntryToConfig(String config, Path target, String displayName) throws QuickAccessServiceException;
 
+	/**
+	 * Adds several entries at once. Subclasses should override this if they can do better than adding the entries one after another.
+	 *
+	 * @param config the config
+	 * @param targets The mount points of the vaults, mapped to the captions of their links
+	 * @return the new entries in the order of the targets and the changed config
+	 * @throws QuickAccessServiceException If any entry cannot be added
+	 */
+	EntriesAndConfig addEntriesToConfig(String config, SequencedMap<Path, String> targets) throws QuickAccessServiceException {
+		var entries = new ArrayList<FileConfiguredQuickAccessEntry>(targets.size());
+		for (var target : targets.entrySet()) {
+			var entryAndConfig = addEntryToConfig(config, target.getKey(), target.getValue());
+			entries.add(entryAndConfig.entry());
+			config = entryAndConfig.config();
+		}
+		return new EntriesAndConfig(entries, config);
+	}
+
+	/**
+	 * Removes several entries at once. Subclasses should override this if they can do better than removing the entries one after another.
+	 *
+	 * @param config the config
+	 * @param entries the entries to remove, none of them removed yet
+	 * @return the changed config
+	 * @throws QuickAccessServiceException If any entry cannot be removed
+	 */
+	String removeEntriesFromConfig(String config, List<FileConfiguredQuickAccessEntry> entries) throws QuickAccessServiceException {
+		for (var entry : entries) {
+			config = entry.removeEntryFromConfig(config);
+		}
+		return config;
+	}
+
+	/**
+	 * Streaming counterpart of {@link #addEntryToConfig(String, Path, String)}, used if the config file exceeds the limit for processing it in memory.
+	 *
+	 * @param target The mount point of the vault
+	 * @param displayName Caption of the vault link
+	 * @return the new entry and the edit adding it, or {@code null} if the config cannot be modified line by line
+	 * @throws QuickAccessServiceException If the entry cannot be created
+	 */
+	EntryAndLineEdit addEntryAsLineEdit(Path target, String displayName) throws QuickAccessServiceException {
+		return null;
+	}
+
 
 	protected abstract class FileConfiguredQuickAccessEntry implements QuickAccessEntry {
 
+		final Path target;
+		final String displayName;
 		private volatile boolean isRemoved = false;
 
+		protected FileConfiguredQuickAccessEntry(Path target, String displayName) {
+			this.target = target;
+			this.displayName = displayName;
+		}
+
 		@Override
 		public void remove() throws QuickAccessServiceException {
+			if (isRemoved) {
+				return;
+			}
 			try {
-				modifyLock.lock();
-				if (isRemoved) {
-					return;
-				}
-				checkFileSize();
-				var config = readConfig();
-				var adjustedConfig = removeEntryFromConfig(config);
-				persistConfig(adjustedConfig);
+				unwrap(commit(removeChange()));
 				isRemoved = true;
+				liveEntries.remove(this);
 			} catch (IOException e) {
 				throw new QuickAccessServiceException("Failed to remove entry to %s.".formatted(configFile), e);
-			} finally {
-				modifyLock.unlock();
 			}
 		}
 
+		private CompletableFuture<Void> removeAsync() {
+			if (isRemoved) {
+				return CompletableFuture.completedFuture(null);
+			}
+			var future = new CompletableFuture<FileConfiguredQuickAccessEntry>();
+			enqueue(new PendingChange(removeChange(), future, System.nanoTime()));
+			return future.thenAccept(entry -> {
+				isRemoved = true;
+				liveEntries.remove(this);
+			});
+		}
+
+		private ConfigChange removeChange() {
+			return new ConfigChange(config -> new EntryAndConfig(this, isRemoved ? config : removeEntryFromConfig(config)), () -> {
+				if (isRemoved) {
+					return new EntryAndLineEdit(this, null);
+				}
+				var edit = removeEntryAsLineEdit();
+				return edit == null ? null : new EntryAndLineEdit(this, edit);
+			});
+		}
+
+		private FileConfiguredQuickAccess owner() {
+			return FileConfiguredQuickAccess.this;
+		}
+
 		abstract String removeEntryFromConfig(String config) throws QuickAccessServiceException;
+
+		/**
+		 * Checks whether this entry is still present. Used when reconciling, so it should be cheap rather than exact.
+		 *
+		 * @param config the config
+		 * @return {@code true} if the config contains this entry
+		 */
+		abstract boolean isContainedIn(String config);
+
+		/**
+		 * Adds this entry again, e.g. after the config file got overwritten by another program.
+		 *
+		 * @param config the config not containing this entry
+		 * @return the config containing this entry
+		 * @throws QuickAccessServiceException if the entry could not be added
+		 */
+		abstract String restoreEntryToConfig(String config) throws QuickAccessServiceException;
+
+		/**
+		 * Streaming counterpart of {@link #removeEntryFromConfig(String)}.
+		 *
+		 * @return the edit removing this entry, or {@code null} if the config cannot be modified line by line
+		 */
+		LineEdit removeEntryAsLineEdit() {
+			return null;
+		}
 	}
 
+	/**
+	 * Reads the config file, unless it did not change since it was last read or written.
+	 * <p>
+	 * If the file is unchanged, the very same string instance as before is returned. Subclasses may rely on this to reuse a model parsed from it.
+	 *
+	 * @return the content of the config file
+	 * @throws IOException if the file cannot be read or exceeds the maximum size
+	 */
 	private String readConfig() throws IOException {
-		return Files.readString(configFile, StandardCharsets.UTF_8);
+		var attrs = Files.readAttributes(configFile, BasicFileAttributes.class);
+		if (snapshot != null && snapshot.matches(attrs)) {
+			return snapshot.content();
+		}
+		checkFileSize(attrs.size());
+		var content = Files.readString(configFile, StandardCharsets.UTF_8);
+		snapshot = new ConfigSnapshot(content, attrs);
+		return content;
 	}
 
-	private void persistConfig(String newConfig) throws IOException {
-		Files.writeString(tmpFile, newConfig, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+	/**
+	 * Replaces the config file by the tmp file, unless the config file got modified since it was read.
+	 * <p>
+	 * There is still a small window between checking and replacing the file, which cannot be closed without cooperation of the file manager.
+	 *
+	 * @param expected the snapshot of the config file the new content is based on
+	 * @param newConfig the content of the tmp file, if known, to avoid reading it again
+	 * @return {@code false} if the file was modified concurrently and nothing was written
+	 * @throws IOException if writing failed
+	 */
+	private boolean replaceConfig(ConfigSnapshot expected, String newConfig) throws IOException {
+		if (!expected.matches(Files.readAttributes(configFile, BasicFileAttributes.class))) {
+			Files.deleteIfExists(tmpFile);
+			return false;
+		}
+		var forceStart = System.nanoTime();
+		if (durability != Durability.NONE) {
+			try (var channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+				channel.force(true); // otherwise the rename may reach the disk before the content
+			}
+		}
+		var forceNanos = System.nanoTime() - forceStart;
+		// read before the move, since the config file might be replaced again right after it; a rename keeps file key, size and modification time
+		var newAttrs = newConfig == null ? null : Files.readAttributes(tmpFile, BasicFileAttributes.class);
 		try {
 			Files.move(tmpFile, configFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 		} catch (AtomicMoveNotSupportedException e) {
 			Files.move(tmpFile, configFile, StandardCopyOption.REPLACE_EXISTING);
 		}
+		if (durability != Durability.NONE) {
+			forceStart = System.nanoTime();
+			forceDirectory();
+			forceLatencies.record(forceNanos + System.nanoTime() - forceStart);
+		}
+		snapshot = newConfig == null ? null : new ConfigSnapshot(newConfig, newAttrs);
+		return true;
+	}
+
+	private void forceDirectory() {
+		var dir = configFile.toAbsolutePath().getParent();
+		try (var channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+			channel.force(true); // persists the rename
+		} catch (IOException e) {
+			LOG.debug("Unable to force directory {} to disk.", dir, e); // not supported by all file systems
+		}
 	}
 
-	private void checkFileSize() throws IOException {
-		if (Files.size(configFile) > maxFileSize) {
+	private void checkFileSize(long size) throws IOException {
+		if (size > maxFileSize) {
 			throw new IOException("File %s exceeds size of %d bytes".formatted(configFile, maxFileSize));
 		}
 	}
 
+	/**
+	 * Content of the config file together with the attributes identifying this version of the file. The content is {@code null} if not held in memory.
+	 */
+	private record ConfigSnapshot(String content, FileTime lastModified, long size, Object fileKey) {
+
+		ConfigSnapshot(String content, BasicFileAttributes attrs) {
+			this(content, attrs.lastModifiedTime(), attrs.size(), attrs.fileKey());
+		}
+
+		boolean matches(BasicFileAttributes attrs) {
+			return lastModified.equals(attrs.lastModifiedTime()) && size == attrs.size() && Objects.equals(fileKey, attrs.fileKey());
+		}
+	}
+
 	private void cleanup() {
 		try {
 			Files.deleteIfExists(tmpFile);
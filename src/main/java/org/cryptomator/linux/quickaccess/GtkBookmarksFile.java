@@ -0,0 +1,121 @@
+package org.cryptomator.linux.quickaccess;
+
+/**
+ * Line-indexed model of a GTK bookmarks file.
+ * <p>
+ * The lines are kept in a doubly linked list. Adding a line appends to the list without copying the existing content,
+ * and the returned handle allows to remove exactly that line in constant time, regardless of the number of other bookmarks.
+ * The content is only assembled when {@link #toString() serializing} the model.
+ */
+class GtkBookmarksFile {
+
+	private Line head;
+	private Line tail;
+	private int length; // number of chars when serialized
+
+	/**
+	 * A line of the bookmarks file, serving as handle to remove it again.
+	 */
+	static final class Line {
+
+		private final GtkBookmarksFile file;
+		private final String text;
+		private Line prev;
+		private Line next;
+		private boolean removed;
+
+		private Line(GtkBookmarksFile file, String text) {
+			this.file = file;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Parses the given content. Trailing blank lines are dropped.
+	 *
+	 * @param content the content of the bookmarks file
+	 * @return the model of the file
+	 */
+	static GtkBookmarksFile parse(String content) {
+		var file = new GtkBookmarksFile();
+		content.stripTrailing().lines().forEach(file::append);
+		return file;
+	}
+
+	/**
+	 * Appends a line to the end of the file.
+	 *
+	 * @param text the line without line terminator
+	 * @return the handle of the new line
+	 */
+	Line append(String text) {
+		var line = new Line(this, text);
+		if (tail == null) {
+			head = line;
+		} else {
+			tail.next = line;
+			line.prev = tail;
+		}
+		tail = line;
+		length += text.length() + 1;
+		return line;
+	}
+
+	/**
+	 * Checks whether the handle refers to a line still present in this model.
+	 *
+	 * @param line a handle returned by {@link #append(String)}
+	 * @return {@code true} if the line can be {@link #remove(Line) removed} from this model
+	 */
+	boolean contains(Line line) {
+		return line.file == this && !line.removed;
+	}
+
+	/**
+	 * Removes the given line in constant time.
+	 *
+	 * @param line a handle of a line {@link #contains(Line) contained} in this model
+	 */
+	void remove(Line line) {
+		if (!contains(line)) {
+			throw new IllegalArgumentException("Line not contained in this file");
+		}
+		if (line.prev == null) {
+			head = line.next;
+		} else {
+			line.prev.next = line.next;
+		}
+		if (line.next == null) {
+			tail = line.prev;
+		} else {
+			line.next.prev = line.prev;
+		}
+		line.removed = true;
+		length -= line.text.length() + 1;
+	}
+
+	/**
+	 * Removes all lines with the given text. Requires a scan of the whole file.
+	 *
+	 * @param text the line to remove
+	 */
+	void removeAll(String text) {
+		for (var line = head; line != null; line = line.next) {
+			if (line.text.equals(text)) {
+				remove(line);
+			}
+		}
+	}
+
+	/**
+	 * @return the content of the bookmarks file, each line terminated by a line feed
+	 */
+	@Override
+	public String toString() {
+		var sb = new StringBuilder(length);
+		for (var line = head; line != null; line = line.next) {
+			sb.append(line.text).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,75 @@
+package org.cryptomator.linux.quickaccess;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of latencies with power-of-two buckets.
+ * <p>
+ * Bucket {@code i} counts latencies between 2<sup>i</sup> (inclusive) and 2<sup>i+1</sup> (exclusive) nanoseconds,
+ * which is precise enough to tell microseconds from milliseconds while recording without allocation or locking.
+ */
+public final class LatencyHistogram {
+
+	private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+	LatencyHistogram() {
+	}
+
+	void record(long nanos) {
+		buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+	}
+
+	/**
+	 * @return Number of recorded latencies
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @return Number of recorded latencies per bucket
+	 */
+	public long[] getBuckets() {
+		var result = new long[buckets.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = buckets.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Estimates a percentile by the upper bound of the bucket containing it.
+	 *
+	 * @param percentile value between 0 (exclusive) and 100 (inclusive)
+	 * @return Upper bound of the latency below which the given percentage of the recorded latencies lie, or {@link Duration#ZERO} if nothing was recorded
+	 */
+	public Duration getPercentile(double percentile) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+		}
+		var counts = getBuckets();
+		long total = 0;
+		for (var count : counts) {
+			total += count;
+		}
+		var rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				return Duration.ofNanos(i == Long.SIZE - 2 ? Long.MAX_VALUE : 1L << (i + 1));
+			}
+		}
+		return Duration.ZERO;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram[count=%d, p50=%s, p99=%s, max=%s]".formatted(getCount(), getPercentile(50), getPercentile(99), getPercentile(100));
+	}
+}
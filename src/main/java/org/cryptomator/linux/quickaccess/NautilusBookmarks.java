@@ -7,10 +7,12 @@ import org.cryptomator.integrations.common.Priority;
 import org.cryptomator.integrations.quickaccess.QuickAccessService;
 import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SequencedMap;
 
 @Priority(100)
 @CheckAvailability
@@ -18,39 +20,161 @@ import java.util.stream.Collectors;
 @DisplayName("GNOME Nautilus Bookmarks")
 public class NautilusBookmarks extends FileConfiguredQuickAccess implements QuickAccessService {
 
-	private static final int MAX_FILE_SIZE = 4096;
+	private static final String IN_MEMORY_LIMIT_PROPERTY = "cryptomator.integrationsLinux.nautilusBookmarksInMemoryLimit";
+	private static final int DEFAULT_IN_MEMORY_LIMIT = 4096;
 	private static final Path BOOKMARKS_FILE = Path.of(System.getProperty("user.home"), ".config/gtk-3.0/bookmarks");
 
+	// config last written by us and its model, reused as long as the file is not modified externally; guarded by modifyLock
+	private String cachedConfig;
+	private GtkBookmarksFile cachedModel;
+
 	//SPI constructor
 	public NautilusBookmarks() {
-		super(BOOKMARKS_FILE, MAX_FILE_SIZE);
+		this(BOOKMARKS_FILE);
+	}
+
+	public NautilusBookmarks(Path configFilePath) {
+		this(configFilePath, Integer.getInteger(IN_MEMORY_LIMIT_PROPERTY, DEFAULT_IN_MEMORY_LIMIT));
+	}
+
+	/**
+	 * @param configFilePath the GTK bookmarks file
+	 * @param inMemoryLimit size in bytes up to which the bookmarks file is processed in memory. Larger files are processed line by line.
+	 */
+	public NautilusBookmarks(Path configFilePath, int inMemoryLimit) {
+		this(configFilePath, inMemoryLimit, defaultDurability());
+	}
+
+	/**
+	 * @param configFilePath the GTK bookmarks file
+	 * @param inMemoryLimit size in bytes up to which the bookmarks file is processed in memory. Larger files are processed line by line.
+	 * @param durability whether and how modifications are forced to disk
+	 */
+	public NautilusBookmarks(Path configFilePath, int inMemoryLimit, Durability durability) {
+		super(configFilePath, inMemoryLimit, durability);
 	}
 
 	@Override
 	EntryAndConfig addEntryToConfig(String config, Path target, String displayName) throws QuickAccessServiceException {
+		var entryLine = createEntryLine(target, displayName);
+		var model = loadModel(config);
+		var entry = new NautilusQuickAccessEntry(target, displayName, entryLine, model.append(entryLine));
+		return new EntryAndConfig(entry, storeModel(model));
+	}
+
+	@Override
+	EntriesAndConfig addEntriesToConfig(String config, SequencedMap<Path, String> targets) {
+		var model = loadModel(config);
+		var entries = new ArrayList<FileConfiguredQuickAccessEntry>(targets.size());
+		for (var target : targets.entrySet()) {
+			var entryLine = createEntryLine(target.getKey(), target.getValue());
+			entries.add(new NautilusQuickAccessEntry(target.getKey(), target.getValue(), entryLine, model.append(entryLine)));
+		}
+		return new EntriesAndConfig(entries, storeModel(model));
+	}
+
+	@Override
+	String removeEntriesFromConfig(String config, List<FileConfiguredQuickAccessEntry> entries) {
+		var model = loadModel(config);
+		for (var entry : entries) {
+			((NautilusQuickAccessEntry) entry).removeFrom(model);
+		}
+		return storeModel(model);
+	}
+
+	@Override
+	EntryAndLineEdit addEntryAsLineEdit(Path target, String displayName) {
+		var entryLine = createEntryLine(target, displayName);
+		return new EntryAndLineEdit(new NautilusQuickAccessEntry(target, displayName, entryLine, null), new LineEdit() {
+
+			private int blankLines; // held back, since trailing blank lines are dropped
+
+			@Override
+			public void line(String line, LineSink next) throws IOException {
+				if (line.isBlank()) {
+					blankLines++;
+					return;
+				}
+				for (; blankLines > 0; blankLines--) {
+					next.accept("");
+				}
+				next.accept(line);
+			}
+
+			@Override
+			public void end(LineSink next) throws IOException {
+				next.accept(entryLine);
+			}
+		});
+	}
+
+	private static String createEntryLine(Path target, String displayName) {
 		var uriPath = target.toAbsolutePath().toString().replace(" ", "%20");
-		String entryLine = "file://" + uriPath + " " + displayName;
-		var entry = new NautilusQuickAccessEntry(entryLine);
-		var adjustedConfig = config.stripTrailing() +
-				"\n" +
-				entryLine;
-		return new EntryAndConfig(entry, adjustedConfig);
+		return "file://" + uriPath + " " + displayName;
+	}
+
+	/**
+	 * Gets the model of the given config, reusing the one last written by us if the config is unchanged.
+	 *
+	 * @param config the config as returned by the superclass
+	 * @return the model of the config
+	 */
+	private GtkBookmarksFile loadModel(String config) {
+		// identity check on purpose: the superclass hands out the same instance as long as the file is unchanged
+		return config == cachedConfig ? cachedModel : GtkBookmarksFile.parse(config);
+	}
+
+	private String storeModel(GtkBookmarksFile model) {
+		cachedConfig = model.toString();
+		cachedModel = model;
+		return cachedConfig;
 	}
 
 	class NautilusQuickAccessEntry extends FileConfiguredQuickAccessEntry implements QuickAccessEntry {
 
 		private final String line;
+		private final GtkBookmarksFile.Line handle; // null if added while streaming
 
-		NautilusQuickAccessEntry(String line) {
+		NautilusQuickAccessEntry(Path target, String displayName, String line, GtkBookmarksFile.Line handle) {
+			super(target, displayName);
 			this.line = line;
+			this.handle = handle;
+		}
+
+		@Override
+		boolean isContainedIn(String config) {
+			return config.lines().anyMatch(line::equals);
+		}
+
+		@Override
+		String restoreEntryToConfig(String config) {
+			var model = loadModel(config);
+			model.append(line);
+			return storeModel(model);
 		}
 
 		@Override
 		public String removeEntryFromConfig(String config) throws QuickAccessServiceException {
-			return config.lines() //
-					.map(l -> l.equals(line) ? null : l) //
-					.filter(Objects::nonNull) //
-					.collect(Collectors.joining("\n"));
+			var model = loadModel(config);
+			removeFrom(model);
+			return storeModel(model);
+		}
+
+		private void removeFrom(GtkBookmarksFile model) {
+			if (handle != null && model.contains(handle)) {
+				model.remove(handle);
+			} else { // file was re-parsed, e.g. because it was modified externally
+				model.removeAll(line);
+			}
+		}
+
+		@Override
+		LineEdit removeEntryAsLineEdit() {
+			return (l, next) -> {
+				if (!l.equals(line)) {
+					next.accept(l);
+				}
+			};
 		}
 	}
 
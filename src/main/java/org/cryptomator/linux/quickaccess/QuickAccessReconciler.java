@@ -0,0 +1,99 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a quick-access config file and reconciles it with the entries of its service whenever other programs modify it.
+ * <p>
+ * Modifications are debounced, so a burst of writes (e.g. by a file manager saving several times) triggers a single reconciliation.
+ * Writes by the service itself trigger a reconciliation as well, which is cheap, since the service does not re-read a file it wrote itself.
+ *
+ * @see FileConfiguredQuickAccess#startReconciling(Duration)
+ */
+public final class QuickAccessReconciler implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(QuickAccessReconciler.class);
+	private static final ScheduledExecutorService DEBOUNCE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("quickaccess-reconcile").factory());
+
+	private final FileConfiguredQuickAccess service;
+	private final Path configFile;
+	private final Duration debounce;
+	private final WatchService watchService;
+	private final Thread watcher;
+	private ScheduledFuture<?> scheduledReconciliation; // guarded by this
+
+	QuickAccessReconciler(FileConfiguredQuickAccess service, Path configFile, Duration debounce) throws IOException {
+		this.service = service;
+		this.configFile = configFile;
+		this.debounce = debounce;
+		this.watchService = configFile.getFileSystem().newWatchService();
+		try {
+			// the file is replaced by an atomic move, so its directory needs to be watched
+			configFile.toAbsolutePath().getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+		this.watcher = Thread.ofVirtual().name("quickaccess-watch-" + configFile.getFileName()).start(this::watch);
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				var key = watchService.take();
+				var relevant = key.pollEvents().stream().anyMatch(event -> event.kind() == StandardWatchEventKinds.OVERFLOW || configFile.getFileName().equals(event.context()));
+				key.reset();
+				if (relevant) {
+					scheduleReconciliation();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// closed
+		}
+	}
+
+	private synchronized void scheduleReconciliation() {
+		if (scheduledReconciliation != null) {
+			scheduledReconciliation.cancel(false);
+		}
+		scheduledReconciliation = DEBOUNCE_SCHEDULER.schedule(() -> Thread.ofVirtual().start(this::reconcile), debounce.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	private void reconcile() {
+		try {
+			service.reconcile();
+		} catch (IOException | QuickAccessServiceException | RuntimeException e) {
+			LOG.warn("Failed to reconcile {}.", configFile, e);
+		}
+	}
+
+	/**
+	 * Stops watching the config file. A reconciliation already in progress is completed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (scheduledReconciliation != null) {
+				scheduledReconciliation.cancel(false);
+			}
+		}
+		watchService.close();
+		watcher.interrupt();
+	}
+}
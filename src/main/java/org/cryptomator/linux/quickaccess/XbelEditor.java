@@ -0,0 +1,361 @@
+package org.cryptomator.linux.quickaccess;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.DTD;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming editor for XBEL files.
+ * <p>
+ * The document is copied event by event from a StAX reader to a StAX writer. Only the top-level bookmark currently being inspected is buffered,
+ * so memory usage does not depend on the number of bookmarks in the file.
+ */
+class XbelEditor {
+
+	static final String XBEL_NAMESPACE = "http://www.freedesktop.org/standards/desktop-bookmarks";
+	static final String CRYPTOMATOR_OWNER = "https://cryptomator.org";
+	private static final String DEFAULT_INDENT_UNIT = "\t";
+
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+	private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newFactory();
+
+	static {
+		// factories are thread-safe once configured
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+	}
+
+	private XbelEditor() {
+	}
+
+	/**
+	 * Adds bookmarks to the end of the XBEL document in a single pass, replacing all bookmarks owned by Cryptomator for the same targets.
+	 *
+	 * @param config the XBEL document
+	 * @param bookmarks the bookmarks to add
+	 * @return the changed XBEL document
+	 * @throws XMLStreamException if the document is not well-formed
+	 */
+	static String addBookmarks(String config, List<NewBookmark> bookmarks) throws XMLStreamException {
+		var hrefs = bookmarks.stream().map(NewBookmark::href).collect(Collectors.toSet());
+		return edit(config, bookmark -> bookmark.ownedByUs() && hrefs.contains(bookmark.href()), bookmarks);
+	}
+
+	/**
+	 * Removes all top-level bookmarks matching the given filter.
+	 *
+	 * @param config the XBEL document
+	 * @param filter decides which bookmarks to remove
+	 * @return the changed XBEL document or the very same instance, if no bookmark was removed
+	 * @throws XMLStreamException if the document is not well-formed
+	 */
+	static String removeBookmarks(String config, Predicate<Bookmark> filter) throws XMLStreamException {
+		return edit(config, filter, List.of());
+	}
+
+	/**
+	 * Properties of an existing top-level bookmark.
+	 *
+	 * @param href the target of the bookmark
+	 * @param ownedByUs whether the bookmark contains metadata owned by Cryptomator
+	 * @param id the id stored in the metadata owned by Cryptomator, if any
+	 */
+	record Bookmark(String href, boolean ownedByUs, String id) {
+	}
+
+	/**
+	 * A bookmark to add.
+	 *
+	 * @param target The mount point of the vault
+	 * @param displayName Caption of the vault link in dolphin
+	 * @param id The id of the new bookmark
+	 */
+	record NewBookmark(Path target, String displayName, String id) {
+
+		String href() {
+			return target.toUri().toString();
+		}
+	}
+
+	private static String edit(String config, Predicate<Bookmark> removalFilter, List<NewBookmark> newBookmarks) throws XMLStreamException {
+		boolean changed = false;
+		var out = new StringWriter(config.length() + 512);
+		XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(new StringReader(config));
+		var writer = new EventWriter(OUTPUT_FACTORY.createXMLStreamWriter(out));
+		try {
+			int depth = 0;
+			StartElement root = null;
+			String indent = null; // whitespace in front of the first top-level element
+			var pendingWhitespace = new ArrayList<XMLEvent>(); // top-level whitespace, dropped together with the following bookmark
+			BufferedBookmark bookmark = null;
+			while (reader.hasNext()) {
+				var event = reader.nextEvent();
+				if (event.isStartElement()) {
+					depth++;
+				}
+				if (depth == 2 && event.isStartElement() && indent == null && !pendingWhitespace.isEmpty()) {
+					indent = pendingWhitespace.getLast().asCharacters().getData(); // whatever kind of element comes first
+				}
+				if (bookmark != null) {
+					bookmark.add(event, depth);
+					if (event.isEndElement() && depth == 2) {
+						if (removalFilter.test(bookmark.toBookmark())) {
+							changed = true;
+						} else {
+							addAll(writer, pendingWhitespace);
+							addAll(writer, bookmark.events);
+						}
+						pendingWhitespace.clear();
+						bookmark = null;
+					}
+				} else if (depth == 2 && event.isStartElement() && event.asStartElement().getName().getLocalPart().equals("bookmark")) {
+					bookmark = new BufferedBookmark(event.asStartElement());
+				} else if (depth == 1 && event.isCharacters() && event.asCharacters().isWhiteSpace()) {
+					pendingWhitespace.add(event);
+				} else if (depth == 1 && event.isEndElement() && !newBookmarks.isEmpty()) {
+					var unit = indent == null ? "" : indent.substring(indent.lastIndexOf('\n') + 1);
+					for (var newBookmark : newBookmarks) {
+						writeBookmark(writer, root, newBookmark, unit.isEmpty() ? DEFAULT_INDENT_UNIT : unit);
+					}
+					writer.add(EVENT_FACTORY.createCharacters("\n"));
+					writer.add(event);
+					pendingWhitespace.clear();
+					changed = true;
+				} else {
+					if (depth == 1 && event.isStartElement()) {
+						root = event.asStartElement();
+					}
+					addAll(writer, pendingWhitespace);
+					pendingWhitespace.clear();
+					writer.add(event.isStartDocument() ? EVENT_FACTORY.createStartDocument(StandardCharsets.UTF_8.name(), "1.0") : event);
+					if (depth == 0 && (event.isStartDocument() || event.isProcessingInstruction() || event.getEventType() == XMLEvent.COMMENT || event.getEventType() == XMLEvent.DTD)) {
+						writer.add(EVENT_FACTORY.createCharacters("\n")); // the reader does not report whitespace outside of the root element
+					}
+				}
+				if (event.isEndElement()) {
+					depth--;
+				}
+			}
+			writer.flush();
+		} finally {
+			writer.close();
+			reader.close();
+		}
+		return changed ? out.toString() : config;
+	}
+
+	/**
+	 * Writes a bookmark element like
+	 * <pre>{@code
+	 * <bookmark href="file:///home/someuser/folder1/">
+	 *   <title>integrations-linux</title>
+	 *   <info>
+	 *     <metadata owner="http://freedesktop.org">
+	 *       <bookmark:icon name="drive-harddisk-encrypted"/>
+	 *     </metadata>
+	 *     <metadata owner="https://cryptomator.org">
+	 *       <id>sldkf-sadf-sadf-sadf</id>
+	 *     </metadata>
+	 *   </info>
+	 * </bookmark>
+	 * }</pre>
+	 */
+	private static void writeBookmark(EventWriter writer, StartElement root, NewBookmark bookmark, String indentUnit) throws XMLStreamException {
+		var prefix = root == null ? null : root.getNamespaceContext().getPrefix(XBEL_NAMESPACE);
+		var iconNamespaces = prefix == null ? List.of(EVENT_FACTORY.createNamespace("bookmark", XBEL_NAMESPACE)).iterator() : null;
+		prefix = prefix == null ? "bookmark" : prefix;
+
+		newLine(writer, indentUnit, 1);
+		writer.add(EVENT_FACTORY.createStartElement("", "", "bookmark", List.of(EVENT_FACTORY.createAttribute("href", bookmark.href())).iterator(), null));
+		newLine(writer, indentUnit, 2);
+		writer.add(EVENT_FACTORY.createStartElement("", "", "title"));
+		writer.add(EVENT_FACTORY.createCharacters(bookmark.displayName()));
+		writer.add(EVENT_FACTORY.createEndElement("", "", "title"));
+		newLine(writer, indentUnit, 2);
+		writer.add(EVENT_FACTORY.createStartElement("", "", "info"));
+		newLine(writer, indentUnit, 3);
+		writer.add(EVENT_FACTORY.createStartElement("", "", "metadata", List.of(EVENT_FACTORY.createAttribute("owner", "http://freedesktop.org")).iterator(), null));
+		newLine(writer, indentUnit, 4);
+		writer.add(EVENT_FACTORY.createStartElement(prefix, XBEL_NAMESPACE, "icon", List.of(EVENT_FACTORY.createAttribute("name", "drive-harddisk-encrypted")).iterator(), iconNamespaces));
+		writer.add(EVENT_FACTORY.createEndElement(prefix, XBEL_NAMESPACE, "icon"));
+		newLine(writer, indentUnit, 3);
+		writer.add(EVENT_FACTORY.createEndElement("", "", "metadata"));
+		newLine(writer, indentUnit, 3);
+		writer.add(EVENT_FACTORY.createStartElement("", "", "metadata", List.of(EVENT_FACTORY.createAttribute("owner", CRYPTOMATOR_OWNER)).iterator(), null));
+		newLine(writer, indentUnit, 4);
+		writer.add(EVENT_FACTORY.createStartElement("", "", "id"));
+		writer.add(EVENT_FACTORY.createCharacters(bookmark.id()));
+		writer.add(EVENT_FACTORY.createEndElement("", "", "id"));
+		newLine(writer, indentUnit, 3);
+		writer.add(EVENT_FACTORY.createEndElement("", "", "metadata"));
+		newLine(writer, indentUnit, 2);
+		writer.add(EVENT_FACTORY.createEndElement("", "", "info"));
+		newLine(writer, indentUnit, 1);
+		writer.add(EVENT_FACTORY.createEndElement("", "", "bookmark"));
+	}
+
+	private static void addAll(EventWriter writer, List<XMLEvent> events) throws XMLStreamException {
+		for (var event : events) {
+			writer.add(event);
+		}
+	}
+
+	private static void newLine(EventWriter writer, String indentUnit, int level) throws XMLStreamException {
+		writer.add(EVENT_FACTORY.createCharacters("\n" + indentUnit.repeat(level)));
+	}
+
+	/**
+	 * Writes events like an {@link javax.xml.stream.XMLEventWriter}, except for elements without content: they are written as empty elements
+	 * ({@code <icon/>}) like Dolphin does, rather than expanded ({@code <icon></icon>}), so unchanged parts of the document keep their size.
+	 */
+	private static final class EventWriter {
+
+		private final XMLStreamWriter out;
+		private StartElement pendingStart; // written as soon as it is known whether the element has content
+
+		EventWriter(XMLStreamWriter out) {
+			this.out = out;
+		}
+
+		void add(XMLEvent event) throws XMLStreamException {
+			if (pendingStart != null) {
+				var start = pendingStart;
+				pendingStart = null;
+				writeStartElement(start, event.isEndElement());
+				if (event.isEndElement()) {
+					return;
+				}
+			}
+			switch (event.getEventType()) {
+				case XMLStreamConstants.START_ELEMENT -> pendingStart = event.asStartElement();
+				case XMLStreamConstants.END_ELEMENT -> out.writeEndElement();
+				case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE -> out.writeCharacters(event.asCharacters().getData());
+				case XMLStreamConstants.CDATA -> out.writeCData(event.asCharacters().getData());
+				case XMLStreamConstants.COMMENT -> out.writeComment(((Comment) event).getText());
+				case XMLStreamConstants.PROCESSING_INSTRUCTION -> {
+					var pi = (ProcessingInstruction) event;
+					out.writeProcessingInstruction(pi.getTarget(), pi.getData());
+				}
+				case XMLStreamConstants.DTD -> out.writeDTD(((DTD) event).getDocumentTypeDeclaration());
+				case XMLStreamConstants.ENTITY_REFERENCE -> out.writeEntityRef(((EntityReference) event).getName());
+				case XMLStreamConstants.START_DOCUMENT -> {
+					var doc = (StartDocument) event;
+					out.writeStartDocument(doc.getCharacterEncodingScheme(), doc.getVersion());
+				}
+				case XMLStreamConstants.END_DOCUMENT -> out.writeEndDocument();
+				default -> throw new XMLStreamException("Unexpected event " + event);
+			}
+		}
+
+		private void writeStartElement(StartElement start, boolean empty) throws XMLStreamException {
+			var name = start.getName();
+			if (empty) {
+				out.writeEmptyElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+			} else {
+				out.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+			}
+			for (var namespaces = start.getNamespaces(); namespaces.hasNext(); ) {
+				var namespace = namespaces.next();
+				if (namespace.isDefaultNamespaceDeclaration()) {
+					out.writeDefaultNamespace(namespace.getNamespaceURI());
+				} else {
+					out.writeNamespace(namespace.getPrefix(), namespace.getNamespaceURI());
+				}
+			}
+			for (var attributes = start.getAttributes(); attributes.hasNext(); ) {
+				var attribute = attributes.next();
+				var attributeName = attribute.getName();
+				if (attributeName.getNamespaceURI().isEmpty()) {
+					out.writeAttribute(attributeName.getLocalPart(), attribute.getValue());
+				} else {
+					out.writeAttribute(attributeName.getPrefix(), attributeName.getNamespaceURI(), attributeName.getLocalPart(), attribute.getValue());
+				}
+			}
+		}
+
+		void flush() throws XMLStreamException {
+			if (pendingStart != null) {
+				writeStartElement(pendingStart, false);
+				pendingStart = null;
+			}
+			out.flush();
+		}
+
+		void close() throws XMLStreamException {
+			out.close();
+		}
+	}
+
+	/**
+	 * Events of a top-level bookmark element, together with what is needed to decide whether to keep it.
+	 */
+	private static class BufferedBookmark {
+
+		private static final QName HREF = new QName("href");
+		private static final QName OWNER = new QName("owner");
+
+		final List<XMLEvent> events = new ArrayList<>();
+		final String href;
+		boolean ownedByUs;
+		private String child; // local name of the current child element of the bookmark
+		private boolean inOwnMetadata;
+		private StringBuilder id; // non-null while reading the id in the metadata owned by us
+		private String completeId;
+
+		BufferedBookmark(StartElement start) {
+			events.add(start);
+			var attr = start.getAttributeByName(HREF);
+			this.href = attr == null ? null : attr.getValue();
+		}
+
+		void add(XMLEvent event, int depth) {
+			events.add(event);
+			if (event.isStartElement()) {
+				var element = event.asStartElement();
+				var name = element.getName().getLocalPart();
+				if (depth == 3) {
+					child = name;
+				} else if (depth == 4 && "info".equals(child) && name.equals("metadata")) {
+					var owner = element.getAttributeByName(OWNER);
+					inOwnMetadata = owner != null && CRYPTOMATOR_OWNER.equals(owner.getValue());
+					ownedByUs |= inOwnMetadata;
+				} else if (depth == 5 && inOwnMetadata && name.equals("id")) {
+					id = new StringBuilder();
+				}
+			} else if (event.isCharacters() && id != null) {
+				id.append(event.asCharacters().getData());
+			} else if (event.isEndElement() && depth == 5 && id != null) {
+				completeId = id.toString();
+				id = null;
+			} else if (event.isEndElement() && depth == 4) {
+				inOwnMetadata = false;
+			}
+		}
+
+		Bookmark toBookmark() {
+			return new Bookmark(href, ownedByUs, completeId);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package org.cryptomator.linux;
+
+import org.cryptomator.linux.keychain.KeychainBenchmark;
+import org.cryptomator.linux.keychain.PrivateSessionBus;
+import org.cryptomator.linux.keychain.SecretServiceKeychainAccessBenchmark;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+
+/**
+ * Entry point of the JMH benchmarks of this project, run by the {@code benchmark} Maven profile, e.g.
+ * {@code ./mvnw test -Pbenchmark -Dbenchmark.args="KeychainBenchmark -p backend=KDEWallet"}.
+ * <p>
+ * Arguments are JMH command line options; without a benchmark selection, all benchmarks are run. Allocation per operation is always reported.
+ * Keychain benchmarks connect to a {@link PrivateSessionBus} with mocked keychain daemons, unless {@value #SESSION_BUS_PROPERTY} is {@code true}.
+ * In that case they use the daemons of the current desktop session and are restricted to the backends available there,
+ * unless selected explicitly via {@code -p backend=...}.
+ */
+public class BenchmarkRunner {
+
+	private static final String SESSION_BUS_PROPERTY = "cryptomator.integrationsLinux.benchmarkOnSessionBus";
+
+	public static void main(String[] args) throws Exception {
+		var cli = new CommandLineOptions(args);
+		var opt = new OptionsBuilder().parent(cli) //
+				.addProfiler(GCProfiler.class) //
+				.shouldFailOnError(true);
+		if (cli.getIncludes().isEmpty()) {
+			opt.include(BenchmarkRunner.class.getPackageName() + ".*Benchmark.*");
+		}
+		if (Boolean.getBoolean(SESSION_BUS_PROPERTY)) {
+			selectKeychainBackends(opt, cli);
+			new Runner(opt.build()).run();
+		} else {
+			try (var bus = PrivateSessionBus.start()) {
+				System.setProperty(PrivateSessionBus.SESSION_BUS_ADDRESS_PROPERTY, bus.getAddress());
+				opt.jvmArgsPrepend("-D" + PrivateSessionBus.SESSION_BUS_ADDRESS_PROPERTY + "=" + bus.getAddress()); // benchmarks run in forked JVMs
+				selectKeychainBackends(opt, cli);
+				new Runner(opt.build()).run();
+			}
+		}
+	}
+
+	private static void selectKeychainBackends(ChainedOptionsBuilder opt, CommandLineOptions cli) {
+		var requested = cli.getParameter("backend");
+		List<String> backends = requested.hasValue() ? List.copyOf(requested.get()) : KeychainBenchmark.availableBackends();
+		if (backends.isEmpty()) {
+			opt.exclude(KeychainBenchmark.class.getName());
+		} else {
+			opt.param("backend", backends.toArray(String[]::new));
+		}
+		if (!backends.contains("SecretService")) {
+			opt.exclude(SecretServiceKeychainAccessBenchmark.class.getName());
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package org.cryptomator.linux.keychain;
+
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.cryptomator.integrations.keychain.KeychainAccessProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncKeychainAccessTest {
+
+	private final BlockingKeychain backend = new BlockingKeychain();
+	private AsyncKeychainAccess keychain;
+
+	@BeforeEach
+	public void setup() {
+		keychain = new AsyncKeychainAccess(backend, 1);
+	}
+
+	@AfterEach
+	public void teardown() {
+		backend.release.countDown();
+		keychain.close();
+	}
+
+	@Test
+	@DisplayName("Concurrent loads of the same key are coalesced, but each caller gets its own copy")
+	public void testConcurrentLoadsAreCoalesced() throws Exception {
+		var first = keychain.loadPassphrase("vault");
+		var second = keychain.loadPassphrase("vault");
+		backend.release.countDown();
+
+		var firstResult = first.get(1, TimeUnit.SECONDS);
+		var secondResult = second.get(1, TimeUnit.SECONDS);
+		Assertions.assertEquals(1, backend.loads.get());
+		Assertions.assertArrayEquals("p0ssw0rd".toCharArray(), firstResult);
+		Assertions.assertArrayEquals("p0ssw0rd".toCharArray(), secondResult);
+		Assertions.assertNotSame(firstResult, secondResult);
+	}
+
+	@Test
+	@DisplayName("Calls exceeding the concurrency limit are queued")
+	public void testCallsAreQueued() throws Exception {
+		var first = keychain.loadPassphrase("vault1");
+		var second = keychain.loadPassphrase("vault2");
+		Assertions.assertTrue(backend.started.await(1, TimeUnit.SECONDS)); // the second call is counted as queued when dispatched and cannot pass the semaphore before the release
+
+		Assertions.assertEquals(1, keychain.getRunningCalls());
+		Assertions.assertEquals(1, keychain.getQueueDepth());
+		backend.release.countDown();
+		first.get(1, TimeUnit.SECONDS);
+		second.get(1, TimeUnit.SECONDS);
+		Assertions.assertEquals(0, keychain.getQueueDepth());
+		Assertions.assertEquals(2, backend.loads.get());
+	}
+
+	@Test
+	@DisplayName("Failures of the backend complete the future exceptionally")
+	public void testFailureIsPropagated() {
+		backend.release.countDown();
+		var future = keychain.deletePassphrase("vault");
+
+		var e = Assertions.assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+		Assertions.assertInstanceOf(KeychainAccessException.class, e.getCause());
+	}
+
+	@Test
+	@DisplayName("The passphrase loaded from the backend is wiped once handed out to all callers")
+	public void testLoadedPassphraseIsWiped() throws Exception {
+		var first = keychain.loadPassphrase("vault");
+		var second = keychain.loadPassphrase("vault");
+		backend.release.countDown();
+
+		Assertions.assertArrayEquals("p0ssw0rd".toCharArray(), first.get(1, TimeUnit.SECONDS));
+		Assertions.assertArrayEquals("p0ssw0rd".toCharArray(), second.get(1, TimeUnit.SECONDS));
+		Assertions.assertArrayEquals(new char[8], backend.loaded);
+	}
+
+	@Test
+	@DisplayName("The passphrase to store is copied before returning to the caller")
+	public void testStoreCopiesPassphrase() throws Exception {
+		var passphrase = new StringBuilder("p0ssw0rd");
+		var future = keychain.storePassphrase("vault", "Vault", passphrase);
+		passphrase.setLength(0);
+		backend.release.countDown();
+
+		future.get(1, TimeUnit.SECONDS);
+		Assertions.assertEquals("p0ssw0rd", backend.stored);
+	}
+
+	private static class BlockingKeychain implements KeychainAccessProvider {
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger loads = new AtomicInteger();
+		volatile String stored;
+		volatile char[] loaded;
+
+		@Override
+		public void storePassphrase(String key, String displayName, CharSequence passphrase) throws KeychainAccessException {
+			await();
+			stored = passphrase.toString();
+		}
+
+		@Override
+		public char[] loadPassphrase(String key) throws KeychainAccessException {
+			loads.incrementAndGet();
+			started.countDown();
+			await();
+			loaded = "p0ssw0rd".toCharArray();
+			return loaded;
+		}
+
+		@Override
+		public void deletePassphrase(String key) throws KeychainAccessException {
+			throw new KeychainAccessException("Deleting password failed.");
+		}
+
+		@Override
+		public void changePassphrase(String key, String displayName, CharSequence passphrase) {
+		}
+
+		@Override
+		public boolean isSupported() {
+			return true;
+		}
+
+		@Override
+		public boolean isLocked() {
+			return false;
+		}
+
+		private void await() throws KeychainAccessException {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new KeychainAccessException("Interrupted", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package org.cryptomator.linux.keychain;
+
+import org.freedesktop.dbus.annotations.DBusInterfaceName;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.interfaces.DBusInterface;
+import org.freedesktop.dbus.messages.DBusSignal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process mock of kwalletd, as far as used by the KDE Wallet keychain.
+ * <p>
+ * Every wallet is enabled and opens without prompting the user. As with the real daemon, {@code openAsync} answers with a transaction id and
+ * signals the handle afterwards, and modifying a folder signals {@code folderUpdated}. Passwords are only kept in memory.
+ */
+public class KWalletDaemonMock {
+
+	private static final Logger LOG = LoggerFactory.getLogger(KWalletDaemonMock.class);
+	// bus names and object paths of KDE Frameworks 5 and 6
+	private static final List<String> VERSIONS = List.of("kwalletd5", "kwalletd6");
+	private static final int ENTRY_TYPE_UNKNOWN = 0;
+	private static final int ENTRY_TYPE_PASSWORD = 1;
+
+	private final DBusConnection connection;
+	private final AtomicInteger ids = new AtomicInteger();
+	private final Map<String, Integer> openWallets = new ConcurrentHashMap<>(); // wallet name -> handle
+	private final Map<String, String> passwords = new ConcurrentHashMap<>(); // folder + '/' + key -> password, shared by all wallets
+
+	/**
+	 * @param connection connection to the bus on which the daemon is exported
+	 */
+	public KWalletDaemonMock(DBusConnection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Exports the wallet daemon and acquires its bus names.
+	 *
+	 * @throws DBusException if exporting or acquiring a bus name failed
+	 */
+	public void export() throws DBusException {
+		for (var version : VERSIONS) {
+			connection.exportObject("/modules/" + version, new WalletObject("/modules/" + version));
+			connection.requestBusName("org.kde." + version);
+		}
+	}
+
+	/**
+	 * D-Bus interface of kwalletd, restricted to the members used by the keychain.
+	 */
+	@DBusInterfaceName("org.kde.KWallet")
+	public interface KWallet extends DBusInterface {
+
+		boolean isEnabled();
+
+		boolean isOpen(String wallet);
+
+		int open(String wallet, long wId, String appid);
+
+		int openAsync(String wallet, long wId, String appid, boolean handleSession);
+
+		boolean hasFolder(int handle, String folder, String appid);
+
+		boolean createFolder(int handle, String folder, String appid);
+
+		boolean hasEntry(int handle, String folder, String key, String appid);
+
+		int entryType(int handle, String folder, String key, String appid);
+
+		String readPassword(int handle, String folder, String key, String appid);
+
+		int writePassword(int handle, String folder, String key, String value, String appid);
+
+		int removeEntry(int handle, String folder, String key, String appid);
+
+		class walletOpened extends DBusSignal {
+
+			public final String wallet;
+
+			public walletOpened(String path, String wallet) throws DBusException {
+				super(path, wallet);
+				this.wallet = wallet;
+			}
+		}
+
+		class walletAsyncOpened extends DBusSignal {
+
+			public final int tId;
+			public final int handle;
+
+			public walletAsyncOpened(String path, int tId, int handle) throws DBusException {
+				super(path, tId, handle);
+				this.tId = tId;
+				this.handle = handle;
+			}
+		}
+
+		class folderUpdated extends DBusSignal {
+
+			public final String wallet;
+			public final String folder;
+
+			public folderUpdated(String path, String wallet, String folder) throws DBusException {
+				super(path, wallet, folder);
+				this.wallet = wallet;
+				this.folder = folder;
+			}
+		}
+	}
+
+	private class WalletObject implements KWallet {
+
+		private final String path;
+
+		WalletObject(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return true;
+		}
+
+		@Override
+		public boolean isOpen(String wallet) {
+			return openWallets.containsKey(wallet);
+		}
+
+		@Override
+		public int open(String wallet, long wId, String appid) {
+			var handle = openWallets.get(wallet);
+			if (handle != null) {
+				return handle;
+			}
+			var previous = openWallets.putIfAbsent(wallet, ids.incrementAndGet());
+			if (previous != null) {
+				return previous;
+			}
+			send(() -> new walletOpened(path, wallet));
+			return openWallets.get(wallet);
+		}
+
+		@Override
+		public int openAsync(String wallet, long wId, String appid, boolean handleSession) {
+			int transactionId = ids.incrementAndGet();
+			// kwalletd replies first and signals the handle once the wallet is open, which may take a while if the user is prompted
+			Thread.ofVirtual().start(() -> {
+				int handle = open(wallet, wId, appid);
+				send(() -> new walletAsyncOpened(path, transactionId, handle));
+			});
+			return transactionId;
+		}
+
+		@Override
+		public boolean hasFolder(int handle, String folder, String appid) {
+			var prefix = folder + '/';
+			return passwords.keySet().stream().anyMatch(entry -> entry.startsWith(prefix));
+		}
+
+		@Override
+		public boolean createFolder(int handle, String folder, String appid) {
+			return true; // folders exist implicitly as long as they contain entries
+		}
+
+		@Override
+		public boolean hasEntry(int handle, String folder, String key, String appid) {
+			return passwords.containsKey(folder + '/' + key);
+		}
+
+		@Override
+		public int entryType(int handle, String folder, String key, String appid) {
+			return hasEntry(handle, folder, key, appid) ? ENTRY_TYPE_PASSWORD : ENTRY_TYPE_UNKNOWN;
+		}
+
+		@Override
+		public String readPassword(int handle, String folder, String key, String appid) {
+			return passwords.getOrDefault(folder + '/' + key, "");
+		}
+
+		@Override
+		public int writePassword(int handle, String folder, String key, String value, String appid) {
+			passwords.put(folder + '/' + key, value);
+			signalFolderUpdated(handle, folder);
+			return 0;
+		}
+
+		@Override
+		public int removeEntry(int handle, String folder, String key, String appid) {
+			passwords.remove(folder + '/' + key);
+			signalFolderUpdated(handle, folder);
+			return 0;
+		}
+
+		private void signalFolderUpdated(int handle, String folder) {
+			openWallets.entrySet().stream() //
+					.filter(entry -> entry.getValue() == handle) //
+					.forEach(entry -> send(() -> new folderUpdated(path, entry.getKey(), folder)));
+		}
+
+		private void send(SignalFactory signal) {
+			try {
+				connection.sendMessage(signal.create());
+			} catch (DBusException e) {
+				LOG.warn("Failed to emit signal.", e);
+			}
+		}
+
+		@Override
+		public String getObjectPath() {
+			return path;
+		}
+	}
+
+	@FunctionalInterface
+	private interface SignalFactory {
+
+		DBusSignal create() throws DBusException;
+	}
+
+}
@@ -0,0 +1,102 @@
+package org.cryptomator.linux.keychain;
+
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.cryptomator.integrations.keychain.KeychainAccessProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the basic operations of all keychain backends.
+ * <p>
+ * By default, {@link org.cryptomator.linux.BenchmarkRunner} runs it against the mocked daemons of a {@link PrivateSessionBus}, which measures the providers
+ * and the D-Bus round trips without depending on a desktop session. To measure the real daemons, which requires an unlocked keyring/wallet,
+ * run it with {@code -Dbenchmark.onSessionBus=true}, preferably in a throwaway session bus to not touch your personal keyring, e.g.
+ * {@code dbus-run-session -- sh -c 'echo -n "" | gnome-keyring-daemon --unlock --components=secrets && ./mvnw test -Pbenchmark -Dbenchmark.onSessionBus=true'}.
+ * Only the backends listed by {@link #availableBackends()} are run, specific ones can be requested with {@code -Dbenchmark.args="-p backend=KDEWallet"}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeychainBenchmark {
+
+	private static final String PASSPHRASE = "p0ssw0rd";
+
+	private static final List<String> BACKENDS = List.of("SecretService", "GnomeKeyring", "KDEWallet");
+
+	@Param({"SecretService", "GnomeKeyring", "KDEWallet"})
+	private String backend;
+
+	private KeychainAccessProvider keychain;
+	private String key;
+
+	@Setup(Level.Trial)
+	public void setup() throws KeychainAccessException {
+		keychain = create(backend);
+		if (!isAvailable(keychain)) {
+			throw new IllegalStateException(backend + " not available or locked.");
+		}
+		key = "cryptomator-benchmark-" + UUID.randomUUID();
+		keychain.storePassphrase(key, "cryptomator-benchmark", PASSPHRASE);
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() throws KeychainAccessException {
+		keychain.deletePassphrase(key);
+	}
+
+	/**
+	 * @return the backends that are supported and unlocked on this machine
+	 */
+	public static List<String> availableBackends() {
+		return BACKENDS.stream().filter(backend -> isAvailable(create(backend))).toList();
+	}
+
+	private static KeychainAccessProvider create(String backend) {
+		return switch (backend) {
+			case "SecretService" -> new SecretServiceKeychainAccess();
+			case "GnomeKeyring" -> new GnomeKeyringKeychainAccess();
+			case "KDEWallet" -> new KDEWalletKeychainAccess();
+			default -> throw new IllegalArgumentException("Unknown backend " + backend);
+		};
+	}
+
+	private static boolean isAvailable(KeychainAccessProvider keychain) {
+		return keychain.isSupported() && !keychain.isLocked();
+	}
+
+	@Benchmark
+	public char[] load() throws KeychainAccessException {
+		return keychain.loadPassphrase(key);
+	}
+
+	@Benchmark
+	public void change() throws KeychainAccessException {
+		keychain.changePassphrase(key, "cryptomator-benchmark", PASSPHRASE);
+	}
+
+	@Benchmark
+	public void storeAndDelete() throws KeychainAccessException {
+		var tmpKey = "cryptomator-benchmark-" + UUID.randomUUID();
+		keychain.storePassphrase(tmpKey, "cryptomator-benchmark", PASSPHRASE);
+		keychain.deletePassphrase(tmpKey);
+	}
+
+}
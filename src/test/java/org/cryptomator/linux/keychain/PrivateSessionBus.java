@@ -0,0 +1,75 @@
+package org.cryptomator.linux.keychain;
+
+import org.freedesktop.dbus.connections.BusAddress;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.connections.impl.DBusConnectionBuilder;
+import org.freedesktop.dbus.connections.transports.TransportBuilder;
+import org.freedesktop.dbus.daemon.EmbeddedDBusDaemon;
+import org.freedesktop.dbus.exceptions.DBusException;
+
+import java.io.IOException;
+
+/**
+ * A D-Bus daemon running in this JVM, serving {@link SecretServiceDaemonMock} and {@link KWalletDaemonMock}.
+ * <p>
+ * Keychain providers use it instead of the session bus of the desktop, if {@value #SESSION_BUS_ADDRESS_PROPERTY} is set to {@link #getAddress()}
+ * before they connect. This allows running the keychain benchmarks without a desktop session and without touching the keyring of the user.
+ */
+public class PrivateSessionBus implements AutoCloseable {
+
+	/**
+	 * System property taking precedence over the environment variable of the same name, when dbus-java looks up the session bus.
+	 */
+	public static final String SESSION_BUS_ADDRESS_PROPERTY = "DBUS_SESSION_BUS_ADDRESS";
+	private static final long START_TIMEOUT_MILLIS = 10_000;
+
+	private final EmbeddedDBusDaemon daemon;
+	private final DBusConnection connection;
+	private final String address;
+
+	private PrivateSessionBus(EmbeddedDBusDaemon daemon, DBusConnection connection, String address) {
+		this.daemon = daemon;
+		this.connection = connection;
+		this.address = address;
+	}
+
+	/**
+	 * Starts a daemon listening on a new unix socket and exports the mocked keychain daemons.
+	 *
+	 * @return the running bus
+	 * @throws DBusException if the mocks could not be exported
+	 * @throws IOException if the daemon failed to start
+	 */
+	public static PrivateSessionBus start() throws DBusException, IOException {
+		var address = TransportBuilder.createDynamicSession("UNIX", false);
+		var busAddress = BusAddress.of(address);
+		var daemon = new EmbeddedDBusDaemon(busAddress.getListenerAddress());
+		try {
+			daemon.startInBackgroundAndWait(START_TIMEOUT_MILLIS);
+			var connection = DBusConnectionBuilder.forAddress(busAddress).withShared(false).build();
+			new SecretServiceDaemonMock(connection).export();
+			new KWalletDaemonMock(connection).export();
+			return new PrivateSessionBus(daemon, connection, address);
+		} catch (DBusException | RuntimeException e) {
+			daemon.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the address for clients to connect to this bus
+	 */
+	public String getAddress() {
+		return address;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			connection.close();
+		} finally {
+			daemon.close();
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+package org.cryptomator.linux.keychain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap allocation of copying a passphrase into a {@link String} with copying it into an off-heap {@link SecretBuffer}.
+ * This only covers the copy made by the keychain provider, not the encoding and D-Bus transfer by the binding.
+ * See {@code gc.alloc.rate.norm} in the results for the allocation per operation.
+ */
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-XX:+UseParallelGC")
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecretBufferBenchmark {
+
+	@Param({"16", "64"})
+	private int passphraseLength;
+
+	private CharSequence passphrase;
+
+	@Setup
+	public void setup() {
+		var chars = new char[passphraseLength];
+		Arrays.fill(chars, 'x');
+		passphrase = CharBuffer.wrap(chars); // callers usually pass a mutable, destroyable CharSequence
+	}
+
+	@Benchmark
+	public void heapCopy(Blackhole bh) {
+		var copy = passphrase.toString();
+		for (int i = 0; i < copy.length(); i++) {
+			bh.consume(copy.charAt(i));
+		}
+	}
+
+	@Benchmark
+	public void offHeapCopy(Blackhole bh) {
+		try (var copy = SecretBuffer.copyOf(passphrase)) {
+			for (int i = 0; i < copy.length(); i++) {
+				bh.consume(copy.charAt(i));
+			}
+		}
+	}
+
+}
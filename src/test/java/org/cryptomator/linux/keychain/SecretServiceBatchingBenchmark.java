@@ -0,0 +1,110 @@
+package org.cryptomator.linux.keychain;
+
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.freedesktop.dbus.DBusPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Compares loading the passphrases of many vaults one by one with the batched {@code GetSecrets} request, against a mock secret service
+ * that simulates the round trip latency of each D-Bus call. Unlike {@link SecretServiceKeychainAccessBenchmark}, no daemon is required.
+ * <p>
+ * Item paths are cached after the first lookup, as in {@link SecretServiceKeychainAccess}, so only the unlock and secret requests are measured.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SecretServiceBatchingBenchmark {
+
+	@Param({"1", "10", "30"})
+	private int vaults;
+
+	@Param({"50", "500"})
+	private long roundTripMicros;
+
+	private MockSecretStore store;
+	private List<String> keys;
+
+	@Setup
+	public void setup() {
+		keys = IntStream.range(0, vaults).mapToObj(i -> "vault" + i).toList();
+		store = new MockSecretStore(TimeUnit.MICROSECONDS.toNanos(roundTripMicros), keys);
+	}
+
+	@Benchmark
+	public void loadOneByOne(Blackhole bh) throws KeychainAccessException {
+		for (var key : keys) {
+			bh.consume(SecretServiceKeychainAccess.loadPassphrase(store, key));
+		}
+	}
+
+	@Benchmark
+	public Map<String, char[]> loadBatched() throws KeychainAccessException {
+		return SecretServiceKeychainAccess.loadPassphrases(store, keys);
+	}
+
+	private static class MockSecretStore implements SecretServiceKeychainAccess.SecretStore {
+
+		private final long roundTripNanos;
+		private final Map<String, DBusPath> items = new HashMap<>();
+
+		MockSecretStore(long roundTripNanos, List<String> keys) {
+			this.roundTripNanos = roundTripNanos;
+			for (int i = 0; i < keys.size(); i++) {
+				items.put(keys.get(i), new DBusPath("/org/freedesktop/secrets/collection/login/" + i));
+			}
+		}
+
+		private void roundTrip() {
+			LockSupport.parkNanos(roundTripNanos);
+		}
+
+		@Override
+		public Optional<DBusPath> lookup(String key) {
+			return Optional.ofNullable(items.get(key)); // cached
+		}
+
+		@Override
+		public void unlock(List<DBusPath> items) {
+			roundTrip();
+		}
+
+		@Override
+		public char[] getSecret(DBusPath item) {
+			roundTrip();
+			return "p0ssw0rd".toCharArray();
+		}
+
+		@Override
+		public Map<String, char[]> getSecrets(List<DBusPath> items) {
+			roundTrip();
+			Map<String, char[]> secrets = HashMap.newHashMap(items.size());
+			for (var item : items) {
+				secrets.put(item.getPath(), "p0ssw0rd".toCharArray());
+			}
+			return secrets;
+		}
+	}
+
+}
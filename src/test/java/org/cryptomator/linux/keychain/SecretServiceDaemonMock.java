@@ -0,0 +1,509 @@
+package org.cryptomator.linux.keychain;
+
+import org.freedesktop.dbus.DBusPath;
+import org.freedesktop.dbus.Struct;
+import org.freedesktop.dbus.Tuple;
+import org.freedesktop.dbus.annotations.DBusInterfaceName;
+import org.freedesktop.dbus.annotations.Position;
+import org.freedesktop.dbus.connections.impl.DBusConnection;
+import org.freedesktop.dbus.exceptions.DBusException;
+import org.freedesktop.dbus.exceptions.DBusExecutionException;
+import org.freedesktop.dbus.interfaces.DBusInterface;
+import org.freedesktop.dbus.interfaces.Properties;
+import org.freedesktop.dbus.messages.DBusSignal;
+import org.freedesktop.dbus.types.UInt64;
+import org.freedesktop.dbus.types.Variant;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process mock of the {@code org.freedesktop.secrets} daemon, as far as used by the Secret Service and GNOME keyring keychains.
+ * <p>
+ * It provides an always unlocked login collection, which is also the default one, and supports the {@code plain} and the
+ * {@code dh-ietf1024-sha256-aes128-cbc-pkcs7} transport encryption, so that the providers negotiate and encrypt just like with a real daemon.
+ * Secrets are only kept in memory.
+ */
+public class SecretServiceDaemonMock {
+
+	static final String BUS_NAME = "org.freedesktop.secrets";
+	private static final String SERVICE_PATH = "/org/freedesktop/secrets";
+	private static final String LOGIN_COLLECTION_PATH = "/org/freedesktop/secrets/collection/login";
+	private static final String DEFAULT_ALIAS_PATH = "/org/freedesktop/secrets/aliases/default";
+	private static final String ITEM_INTERFACE = "org.freedesktop.Secret.Item";
+	private static final String COLLECTION_INTERFACE = "org.freedesktop.Secret.Collection";
+	private static final String ALGORITHM_PLAIN = "plain";
+	private static final String ALGORITHM_DH = "dh-ietf1024-sha256-aes128-cbc-pkcs7";
+	private static final DBusPath NO_PROMPT = new DBusPath("/");
+	// Second Oakley group of RFC 2409, as required by the Secret Service API for ALGORITHM_DH
+	private static final BigInteger DH_PRIME = new BigInteger("FFFFFFFFFFFFFFFFC90FDAA22168C234C4C6628B80DC1CD129024E088A67CC74020BBEA63B139B22514A08798E3404DDEF9519B3CD3A431B302B0A6DF25F14374FE1356D6D51C245E485B576625E7EC6F44C42E9A637ED6B0BFF5CB6F406B7EDEE386BFB5A899FA5AE9F24117C4B1FE649286651ECE65381FFFFFFFFFFFFFFFF", 16);
+	private static final BigInteger DH_GENERATOR = BigInteger.TWO;
+	private static final int DH_PRIME_BYTES = 128;
+
+	private final DBusConnection connection;
+	private final SecureRandom random = new SecureRandom();
+	private final AtomicLong ids = new AtomicLong();
+	private final Map<String, SessionObject> sessions = new ConcurrentHashMap<>();
+	private final Map<String, ItemObject> items = new ConcurrentHashMap<>(); // path -> item, all in the login collection
+
+	/**
+	 * @param connection connection to the bus on which the daemon is exported
+	 */
+	public SecretServiceDaemonMock(DBusConnection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Exports the service and the login collection and acquires {@value #BUS_NAME}.
+	 *
+	 * @throws DBusException if exporting or acquiring the bus name failed
+	 */
+	public void export() throws DBusException {
+		connection.exportObject(SERVICE_PATH, new ServiceObject());
+		connection.exportObject(LOGIN_COLLECTION_PATH, new CollectionObject(LOGIN_COLLECTION_PATH));
+		connection.exportObject(DEFAULT_ALIAS_PATH, new CollectionObject(DEFAULT_ALIAS_PATH));
+		connection.requestBusName(BUS_NAME);
+	}
+
+	/* D-Bus interfaces of the Secret Service API, restricted to the members used by the keychains */
+
+	@DBusInterfaceName("org.freedesktop.Secret.Service")
+	public interface Service extends DBusInterface {
+
+		Pair<Variant<?>, DBusPath> OpenSession(String algorithm, Variant<?> input);
+
+		Pair<List<DBusPath>, List<DBusPath>> SearchItems(Map<String, String> attributes);
+
+		Pair<List<DBusPath>, DBusPath> Unlock(List<DBusPath> objects);
+
+		Pair<List<DBusPath>, DBusPath> Lock(List<DBusPath> objects);
+
+		Map<DBusPath, Secret> GetSecrets(List<DBusPath> items, DBusPath session);
+
+		DBusPath ReadAlias(String name);
+
+		void SetAlias(String name, DBusPath collection);
+	}
+
+	@DBusInterfaceName(COLLECTION_INTERFACE)
+	public interface Collection extends DBusInterface {
+
+		List<DBusPath> SearchItems(Map<String, String> attributes);
+
+		Pair<DBusPath, DBusPath> CreateItem(Map<String, Variant<?>> properties, Secret secret, boolean replace);
+
+		class ItemCreated extends DBusSignal {
+
+			public final DBusPath item;
+
+			public ItemCreated(String path, DBusPath item) throws DBusException {
+				super(path, item);
+				this.item = item;
+			}
+		}
+
+		class ItemDeleted extends DBusSignal {
+
+			public final DBusPath item;
+
+			public ItemDeleted(String path, DBusPath item) throws DBusException {
+				super(path, item);
+				this.item = item;
+			}
+		}
+
+		class ItemChanged extends DBusSignal {
+
+			public final DBusPath item;
+
+			public ItemChanged(String path, DBusPath item) throws DBusException {
+				super(path, item);
+				this.item = item;
+			}
+		}
+	}
+
+	@DBusInterfaceName(ITEM_INTERFACE)
+	public interface Item extends DBusInterface {
+
+		DBusPath Delete();
+
+		Secret GetSecret(DBusPath session);
+
+		void SetSecret(Secret secret);
+	}
+
+	@DBusInterfaceName("org.freedesktop.Secret.Session")
+	public interface Session extends DBusInterface {
+
+		void Close();
+	}
+
+	public static final class Pair<A, B> extends Tuple {
+
+		@Position(0)
+		public final A first;
+		@Position(1)
+		public final B second;
+
+		public Pair(A first, B second) {
+			this.first = first;
+			this.second = second;
+		}
+	}
+
+	public static final class Secret extends Struct {
+
+		@Position(0)
+		public final DBusPath session;
+		@Position(1)
+		public final byte[] parameters;
+		@Position(2)
+		public final byte[] value;
+		@Position(3)
+		public final String contentType;
+
+		public Secret(DBusPath session, byte[] parameters, byte[] value, String contentType) {
+			this.session = session;
+			this.parameters = parameters;
+			this.value = value;
+			this.contentType = contentType;
+		}
+	}
+
+	/* exported objects */
+
+	private class ServiceObject implements Service, Properties {
+
+		@Override
+		public Pair<Variant<?>, DBusPath> OpenSession(String algorithm, Variant<?> input) {
+			var path = new DBusPath(SERVICE_PATH + "/session/s" + ids.incrementAndGet());
+			var session = switch (algorithm) {
+				case ALGORITHM_PLAIN -> new SessionObject(path, null, new Variant<>(""));
+				case ALGORITHM_DH -> {
+					var privateKey = new BigInteger(DH_PRIME.bitLength() - 1, random);
+					var peerPublicKey = new BigInteger(1, (byte[]) input.getValue());
+					var publicKey = unsignedBytes(DH_GENERATOR.modPow(privateKey, DH_PRIME));
+					yield new SessionObject(path, deriveKey(peerPublicKey.modPow(privateKey, DH_PRIME)), new Variant<>(publicKey));
+				}
+				default -> throw new DBusExecutionException("Algorithm " + algorithm + " not supported");
+			};
+			try {
+				connection.exportObject(path.getPath(), session);
+			} catch (DBusException e) {
+				throw new DBusExecutionException("Failed to export session: " + e.getMessage());
+			}
+			sessions.put(path.getPath(), session);
+			return new Pair<>(session.output, path);
+		}
+
+		@Override
+		public Pair<List<DBusPath>, List<DBusPath>> SearchItems(Map<String, String> attributes) {
+			return new Pair<>(search(attributes), List.of()); // nothing is locked
+		}
+
+		@Override
+		public Pair<List<DBusPath>, DBusPath> Unlock(List<DBusPath> objects) {
+			return new Pair<>(objects, NO_PROMPT);
+		}
+
+		@Override
+		public Pair<List<DBusPath>, DBusPath> Lock(List<DBusPath> objects) {
+			return new Pair<>(List.of(), NO_PROMPT); // locking is not supported
+		}
+
+		@Override
+		public Map<DBusPath, Secret> GetSecrets(List<DBusPath> paths, DBusPath session) {
+			Map<DBusPath, Secret> secrets = HashMap.newHashMap(paths.size());
+			for (var path : paths) {
+				var item = items.get(path.getPath());
+				if (item != null) {
+					secrets.put(path, session(session).encrypt(item.secret));
+				}
+			}
+			return secrets;
+		}
+
+		@Override
+		public DBusPath ReadAlias(String name) {
+			return "default".equals(name) ? new DBusPath(LOGIN_COLLECTION_PATH) : NO_PROMPT;
+		}
+
+		@Override
+		public void SetAlias(String name, DBusPath collection) {
+			// the login collection is always the default one
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <A> A Get(String interfaceName, String propertyName) {
+			return (A) GetAll(interfaceName).get(propertyName);
+		}
+
+		@Override
+		public <A> void Set(String interfaceName, String propertyName, A value) {
+			throw new DBusExecutionException("Property " + propertyName + " is read-only");
+		}
+
+		@Override
+		public Map<String, Variant<?>> GetAll(String interfaceName) {
+			return Map.of("Collections", new Variant<>(List.of(new DBusPath(LOGIN_COLLECTION_PATH)), "ao"));
+		}
+
+		@Override
+		public String getObjectPath() {
+			return SERVICE_PATH;
+		}
+	}
+
+	private class CollectionObject implements Collection, Properties {
+
+		private final String path;
+
+		CollectionObject(String path) {
+			this.path = path;
+		}
+
+		@Override
+		public List<DBusPath> SearchItems(Map<String, String> attributes) {
+			return search(attributes);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Pair<DBusPath, DBusPath> CreateItem(Map<String, Variant<?>> properties, Secret secret, boolean replace) {
+			var label = (String) properties.get(ITEM_INTERFACE + ".Label").getValue();
+			var attributes = Map.copyOf((Map<String, String>) properties.get(ITEM_INTERFACE + ".Attributes").getValue());
+			var plaintext = session(secret.session).decrypt(secret);
+			var existing = replace ? search(attributes) : List.<DBusPath>of();
+			if (!existing.isEmpty()) {
+				var item = items.get(existing.getFirst().getPath());
+				item.label = label;
+				item.secret = plaintext;
+				emit(Collection.ItemChanged::new, item.path);
+				return new Pair<>(item.path, NO_PROMPT);
+			}
+			var item = new ItemObject(new DBusPath(LOGIN_COLLECTION_PATH + "/" + ids.incrementAndGet()), label, attributes, plaintext);
+			try {
+				connection.exportObject(item.path.getPath(), item);
+			} catch (DBusException e) {
+				throw new DBusExecutionException("Failed to export item: " + e.getMessage());
+			}
+			items.put(item.path.getPath(), item);
+			emit(Collection.ItemCreated::new, item.path);
+			return new Pair<>(item.path, NO_PROMPT);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <A> A Get(String interfaceName, String propertyName) {
+			return (A) GetAll(interfaceName).get(propertyName);
+		}
+
+		@Override
+		public <A> void Set(String interfaceName, String propertyName, A value) {
+			// the label of the login collection is fixed
+		}
+
+		@Override
+		public Map<String, Variant<?>> GetAll(String interfaceName) {
+			List<DBusPath> paths = new ArrayList<>();
+			items.values().forEach(item -> paths.add(item.path));
+			return Map.of("Items", new Variant<>(paths, "ao"), //
+					"Label", new Variant<>("Login"), //
+					"Locked", new Variant<>(false), //
+					"Created", new Variant<>(new UInt64(0)), //
+					"Modified", new Variant<>(new UInt64(0)));
+		}
+
+		@Override
+		public String getObjectPath() {
+			return path;
+		}
+	}
+
+	private class ItemObject implements Item, Properties {
+
+		private final DBusPath path;
+		private volatile String label;
+		private volatile Map<String, String> attributes;
+		private volatile byte[] secret;
+
+		ItemObject(DBusPath path, String label, Map<String, String> attributes, byte[] secret) {
+			this.path = path;
+			this.label = label;
+			this.attributes = attributes;
+			this.secret = secret;
+		}
+
+		@Override
+		public DBusPath Delete() {
+			if (items.remove(path.getPath()) != null) {
+				connection.unExportObject(path.getPath());
+				emit(Collection.ItemDeleted::new, path);
+			}
+			return NO_PROMPT;
+		}
+
+		@Override
+		public Secret GetSecret(DBusPath session) {
+			return session(session).encrypt(secret);
+		}
+
+		@Override
+		public void SetSecret(Secret secret) {
+			this.secret = session(secret.session).decrypt(secret);
+			emit(Collection.ItemChanged::new, path);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <A> A Get(String interfaceName, String propertyName) {
+			return (A) GetAll(interfaceName).get(propertyName);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <A> void Set(String interfaceName, String propertyName, A value) {
+			var unwrapped = value instanceof Variant<?> v ? v.getValue() : value;
+			switch (propertyName) {
+				case "Label" -> label = (String) unwrapped;
+				case "Attributes" -> attributes = Map.copyOf((Map<String, String>) unwrapped);
+				default -> throw new DBusExecutionException("Property " + propertyName + " is read-only");
+			}
+			emit(Collection.ItemChanged::new, path);
+		}
+
+		@Override
+		public Map<String, Variant<?>> GetAll(String interfaceName) {
+			return Map.of("Label", new Variant<>(label), //
+					"Attributes", new Variant<>(attributes, "a{ss}"), //
+					"Locked", new Variant<>(false), //
+					"Created", new Variant<>(new UInt64(0)), //
+					"Modified", new Variant<>(new UInt64(0)));
+		}
+
+		@Override
+		public String getObjectPath() {
+			return path.getPath();
+		}
+	}
+
+	private class SessionObject implements Session {
+
+		private final DBusPath path;
+		private final SecretKeySpec key; // null for plain transport
+		private final Variant<?> output;
+
+		SessionObject(DBusPath path, SecretKeySpec key, Variant<?> output) {
+			this.path = path;
+			this.key = key;
+			this.output = output;
+		}
+
+		Secret encrypt(byte[] plaintext) {
+			if (key == null) {
+				return new Secret(path, new byte[0], plaintext, "text/plain");
+			}
+			var iv = new byte[16];
+			random.nextBytes(iv);
+			return new Secret(path, iv, crypt(Cipher.ENCRYPT_MODE, iv, plaintext), "text/plain");
+		}
+
+		byte[] decrypt(Secret secret) {
+			return key == null ? secret.value : crypt(Cipher.DECRYPT_MODE, secret.parameters, secret.value);
+		}
+
+		private byte[] crypt(int mode, byte[] iv, byte[] input) {
+			try {
+				var cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+				cipher.init(mode, key, new IvParameterSpec(iv));
+				return cipher.doFinal(input);
+			} catch (GeneralSecurityException e) {
+				throw new DBusExecutionException("Transport encryption failed: " + e.getMessage());
+			}
+		}
+
+		@Override
+		public void Close() {
+			sessions.remove(path.getPath());
+			connection.unExportObject(path.getPath());
+		}
+
+		@Override
+		public String getObjectPath() {
+			return path.getPath();
+		}
+	}
+
+	/* helpers */
+
+	private List<DBusPath> search(Map<String, String> attributes) {
+		return items.values().stream() //
+				.filter(item -> item.attributes.entrySet().containsAll(attributes.entrySet())) //
+				.map(item -> item.path) //
+				.toList();
+	}
+
+	private SessionObject session(DBusPath path) {
+		var session = sessions.get(path.getPath());
+		if (session == null) {
+			throw new DBusExecutionException("No such session " + path.getPath());
+		}
+		return session;
+	}
+
+	private void emit(ItemSignal signal, DBusPath item) {
+		try {
+			connection.sendMessage(signal.create(LOGIN_COLLECTION_PATH, item));
+		} catch (DBusException e) {
+			throw new DBusExecutionException("Failed to emit signal: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Derives the AES key from the shared secret with HKDF-SHA256 (RFC 5869) without salt and info, as specified for {@value #ALGORITHM_DH}.
+	 *
+	 * @param sharedSecret result of the key exchange
+	 * @return 128 bit AES key
+	 */
+	static SecretKeySpec deriveKey(BigInteger sharedSecret) {
+		var ikm = new byte[DH_PRIME_BYTES]; // left-padded to the size of the prime
+		var secret = unsignedBytes(sharedSecret);
+		System.arraycopy(secret, 0, ikm, ikm.length - secret.length, secret.length);
+		try {
+			var hmac = Mac.getInstance("HmacSHA256");
+			hmac.init(new SecretKeySpec(new byte[32], "HmacSHA256"));
+			var prk = hmac.doFinal(ikm);
+			hmac.init(new SecretKeySpec(prk, "HmacSHA256"));
+			var okm = hmac.doFinal(new byte[]{1});
+			return new SecretKeySpec(Arrays.copyOf(okm, 16), "AES");
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("HMAC-SHA256 not available", e);
+		}
+	}
+
+	private static byte[] unsignedBytes(BigInteger value) {
+		var bytes = value.toByteArray();
+		return bytes[0] == 0 && bytes.length > 1 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+	}
+
+	@FunctionalInterface
+	private interface ItemSignal {
+
+		DBusSignal create(String collection, DBusPath item) throws DBusException;
+	}
+
+}
@@ -0,0 +1,74 @@
+package org.cryptomator.linux.keychain;
+
+import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares loading the passphrases of many vaults one by one with the bulk operation.
+ * <p>
+ * Runs against the {@link SecretServiceDaemonMock} of a {@link PrivateSessionBus} by default, or against a real daemon as described in {@link KeychainBenchmark}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SecretServiceKeychainAccessBenchmark {
+
+	@Param({"1", "10", "30"})
+	private int vaults;
+
+	private SecretServiceKeychainAccess keychain;
+	private List<String> keys;
+
+	@Setup(Level.Trial)
+	public void setup() throws KeychainAccessException {
+		keychain = new SecretServiceKeychainAccess();
+		if (!keychain.isSupported() || keychain.isLocked()) {
+			throw new IllegalStateException("Secret service not available or locked.");
+		}
+		keys = IntStream.range(0, vaults).mapToObj(i -> "cryptomator-benchmark-" + UUID.randomUUID()).toList();
+		for (var key : keys) {
+			keychain.storePassphrase(key, "cryptomator-benchmark", "p0ssw0rd");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() throws KeychainAccessException {
+		for (var key : keys) {
+			keychain.deletePassphrase(key);
+		}
+	}
+
+	@Benchmark
+	public void loadOneByOne(Blackhole bh) throws KeychainAccessException {
+		for (var key : keys) {
+			bh.consume(keychain.loadPassphrase(key));
+		}
+	}
+
+	@Benchmark
+	public void loadBulk(Blackhole bh) throws KeychainAccessException {
+		bh.consume(keychain.loadPassphrases(keys));
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.cryptomator.linux.keychain;
 
 import org.cryptomator.integrations.keychain.KeychainAccessException;
+import org.freedesktop.dbus.DBusPath;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.MethodOrderer;
@@ -12,7 +13,12 @@ import org.junit.jupiter.api.condition.EnabledIf;
 import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -46,6 +52,66 @@ public class SecretServiceKeychainAccessTest {
 		Assertions.assertEquals(isInstalled, service.isSupported());
 	}
 
+	@Test
+	public void testIsSupportedDoesNotNegotiateSession() {
+		var service = new SecretServiceKeychainAccess();
+		service.isSupported();
+		Assertions.assertEquals(0, service.getSessionNegotiationCount());
+	}
+
+	@Test
+	public void testLoadPassphrasesUnlocksAllItemsAtOnce() throws KeychainAccessException {
+		var store = new PerItemLockingStore(Map.of("vault1", "/item/1", "vault2", "/item/2"));
+
+		var passphrases = SecretServiceKeychainAccess.loadPassphrases(store, List.of("vault1", "vault2", "vault3"));
+		Assertions.assertEquals(Set.of("vault1", "vault2"), passphrases.keySet());
+		Assertions.assertEquals(1, store.unlockRequests);
+	}
+
+	/**
+	 * Locks each item separately, like KeePassXC does, and silently skips locked items when fetching several secrets at once.
+	 */
+	private static class PerItemLockingStore implements SecretServiceKeychainAccess.SecretStore {
+
+		private final Map<String, DBusPath> items = new HashMap<>();
+		private final Set<String> unlocked = new HashSet<>();
+		private int unlockRequests;
+
+		PerItemLockingStore(Map<String, String> itemPaths) {
+			itemPaths.forEach((key, path) -> items.put(key, new DBusPath(path)));
+		}
+
+		@Override
+		public Optional<DBusPath> lookup(String key) {
+			return Optional.ofNullable(items.get(key));
+		}
+
+		@Override
+		public void unlock(List<DBusPath> items) {
+			unlockRequests++;
+			items.forEach(item -> unlocked.add(item.getPath()));
+		}
+
+		@Override
+		public char[] getSecret(DBusPath item) throws KeychainAccessException {
+			if (!unlocked.contains(item.getPath())) {
+				throw new KeychainAccessException("Item is locked");
+			}
+			return "p0ssw0rd".toCharArray();
+		}
+
+		@Override
+		public Map<String, char[]> getSecrets(List<DBusPath> items) {
+			Map<String, char[]> secrets = new HashMap<>();
+			for (var item : items) {
+				if (unlocked.contains(item.getPath())) {
+					secrets.put(item.getPath(), "p0ssw0rd".toCharArray());
+				}
+			}
+			return secrets;
+		}
+	}
+
 	@Nested
 	@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 	@EnabledIf("serviceAvailableAndUnlocked")
@@ -57,7 +123,6 @@ public class SecretServiceKeychainAccessTest {
 		@Test
 		@Order(1)
 		public void testStore() throws KeychainAccessException {
-			KEYRING.isSupported(); // ensure encrypted session
 			KEYRING.storePassphrase(KEY_ID, "cryptomator-test", "p0ssw0rd");
 		}
 
@@ -82,6 +147,21 @@ public class SecretServiceKeychainAccessTest {
 			Assertions.assertNull(result);
 		}
 
+		@Test
+		@Order(5)
+		public void testSessionNegotiatedOnce() {
+			Assertions.assertEquals(1, KEYRING.getSessionNegotiationCount());
+		}
+
+		@Test
+		@Order(6)
+		public void testNullKeyIsRejected() {
+			Assertions.assertThrows(KeychainAccessException.class, () -> KEYRING.loadPassphrase(null));
+			Assertions.assertThrows(KeychainAccessException.class, () -> KEYRING.storePassphrase(null, "cryptomator-test", "p0ssw0rd"));
+			Assertions.assertThrows(KeychainAccessException.class, () -> KEYRING.changePassphrase(null, "cryptomator-test", "p0ssw0rd"));
+			Assertions.assertThrows(KeychainAccessException.class, () -> KEYRING.deletePassphrase(null));
+		}
+
 		public static boolean serviceAvailableAndUnlocked() {
 			var service = new SecretServiceKeychainAccess();
 			return service.isSupported() && !service.isLocked();
@@ -0,0 +1,98 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.quickaccess.QuickAccessService.QuickAccessEntry;
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.SequencedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares adding vaults one after another to adding them all at once with {@link FileConfiguredQuickAccess#addAll(SequencedMap)},
+ * e.g. when unlocking all vaults at login. The entries are removed again after each invocation, with {@link FileConfiguredQuickAccess#removeAll(java.util.Collection)}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkAddBenchmark {
+
+	@Param({"1", "50"})
+	private int vaults;
+
+	@Param({"dolphin", "nautilus"})
+	private String fileManager;
+
+	private Path dir;
+	private FileConfiguredQuickAccess service;
+	private SequencedMap<Path, String> targets;
+	private final List<QuickAccessEntry> added = new ArrayList<>();
+
+	@Setup
+	public void setup() throws IOException {
+		dir = DolphinPlacesBenchmark.createBenchmarkDir("tmpfs");
+		service = switch (fileManager) {
+			case "dolphin" -> {
+				var placesFile = dir.resolve("user-places.xbel");
+				Files.writeString(placesFile, XbelEditorBenchmark.generatePlaces(100 * 1024));
+				yield new DolphinPlaces(placesFile);
+			}
+			case "nautilus" -> {
+				var bookmarksFile = dir.resolve("bookmarks");
+				Files.writeString(bookmarksFile, "file:///home/someuser/Documents\n".repeat(100));
+				yield new NautilusBookmarks(bookmarksFile);
+			}
+			default -> throw new IllegalArgumentException("Unknown file manager " + fileManager);
+		};
+		targets = new LinkedHashMap<>();
+		for (int i = 0; i < vaults; i++) {
+			targets.put(Path.of("/home/someuser/vault" + i), "Vault " + i);
+		}
+	}
+
+	@TearDown
+	public void teardown() throws IOException {
+		DolphinPlacesBenchmark.deleteRecursively(dir);
+	}
+
+	@TearDown(Level.Invocation)
+	public void removeAdded() throws QuickAccessServiceException {
+		service.removeAll(added);
+		added.clear();
+	}
+
+	@Benchmark
+	public List<QuickAccessEntry> oneByOne() throws QuickAccessServiceException {
+		for (var target : targets.entrySet()) {
+			added.add(service.add(target.getKey(), target.getValue()));
+		}
+		return added;
+	}
+
+	@Benchmark
+	public List<QuickAccessEntry> addAll() throws QuickAccessServiceException {
+		added.addAll(service.addAll(targets));
+		return added;
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.quickaccess.QuickAccessService;
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class CompositeQuickAccessTest {
+
+	private static final String USER_BOOKMARKS = "file:///home/someuser/Documents\n";
+	private static final String USER_PLACES = """
+			<?xml version="1.0" encoding="UTF-8"?>
+			<!DOCTYPE xbel>
+			<xbel xmlns:bookmark="http://www.freedesktop.org/standards/desktop-bookmarks">
+			</xbel>
+			""";
+	private static final Path TARGET = Path.of("/home/someuser/vault");
+
+	@TempDir
+	private Path tmpDir;
+	private Path bookmarksFile;
+	private Path placesFile;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		bookmarksFile = tmpDir.resolve("bookmarks");
+		placesFile = tmpDir.resolve("user-places.xbel");
+		Files.writeString(bookmarksFile, USER_BOOKMARKS);
+		Files.writeString(placesFile, USER_PLACES);
+	}
+
+	@Test
+	@DisplayName("Entries are added to and removed from all services")
+	public void testAddAndRemove() throws QuickAccessServiceException, IOException {
+		var composite = new CompositeQuickAccess(List.of(new NautilusBookmarks(bookmarksFile), new DolphinPlaces(placesFile)));
+
+		var entry = composite.add(TARGET, "Vault");
+		Assertions.assertTrue(Files.readString(bookmarksFile).contains(TARGET.toUri().toString()));
+		Assertions.assertTrue(Files.readString(placesFile).contains(TARGET.toUri().toString()));
+
+		entry.remove();
+		Assertions.assertEquals(USER_BOOKMARKS, Files.readString(bookmarksFile));
+		Assertions.assertFalse(Files.readString(placesFile).contains(TARGET.toUri().toString()));
+	}
+
+	@Test
+	@DisplayName("Entries added to other services are removed if adding fails for one of them")
+	public void testRollback() throws IOException {
+		QuickAccessService failing = (target, displayName) -> {
+			throw new QuickAccessServiceException("Failed to add entry.");
+		};
+		var composite = new CompositeQuickAccess(List.of(new NautilusBookmarks(bookmarksFile), failing, new DolphinPlaces(placesFile)));
+
+		var e = Assertions.assertThrows(QuickAccessServiceException.class, () -> composite.add(TARGET, "Vault"));
+		Assertions.assertEquals("Failed to add entry.", e.getCause().getMessage());
+		Assertions.assertEquals(USER_BOOKMARKS, Files.readString(bookmarksFile));
+		Assertions.assertFalse(Files.readString(placesFile).contains(TARGET.toUri().toString()));
+	}
+
+	@Test
+	@DisplayName("Multiple entries are removed from all services at once")
+	public void testRemoveAll() throws QuickAccessServiceException, IOException {
+		var composite = new CompositeQuickAccess(List.of(new NautilusBookmarks(bookmarksFile), new DolphinPlaces(placesFile)));
+		var entries = List.of(composite.add(TARGET, "Vault"), composite.add(Path.of("/home/someuser/vault2"), "Vault 2"));
+
+		composite.removeAll(entries);
+		Assertions.assertEquals(USER_BOOKMARKS, Files.readString(bookmarksFile));
+		Assertions.assertFalse(Files.readString(placesFile).contains("/home/someuser/vault"));
+	}
+
+	@Test
+	@DisplayName("Removing entries of another service at once is rejected")
+	public void testRemoveAllForeignEntry() throws QuickAccessServiceException {
+		var entry = new NautilusBookmarks(bookmarksFile).add(TARGET, "Vault");
+		var composite = new CompositeQuickAccess(List.of(new NautilusBookmarks(bookmarksFile), new DolphinPlaces(placesFile)));
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> composite.removeAll(List.of(entry)));
+	}
+
+}
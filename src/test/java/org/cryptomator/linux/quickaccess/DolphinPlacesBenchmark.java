@@ -0,0 +1,126 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.quickaccess.QuickAccessService.QuickAccessEntry;
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding and removing a bookmark end-to-end, i.e. including reading, validating and atomically replacing the places file,
+ * for places files of different sizes up to the size limit.
+ * <p>
+ * The file is placed either on tmpfs ({@code /dev/shm}) or on the regular file system ({@code target/}), to tell processing cost from I/O cost.
+ * Allocation per operation is reported by the GC profiler of {@link org.cryptomator.linux.BenchmarkRunner}, or with {@code -prof gc}.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DolphinPlacesBenchmark {
+
+	private static final Path TARGET = Path.of("/home/someuser/vault");
+
+	@Param({"10", "100", "1023"}) // the largest size still leaves room for the added bookmark below the 1 MiB limit
+	private int fileSizeKiB;
+
+	@Param({"tmpfs", "disk"})
+	private String fileSystem;
+
+	@Param({"NONE", "FSYNC"})
+	private Durability durability;
+
+	private Path dir;
+	private DolphinPlaces places;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = createBenchmarkDir(fileSystem);
+		var placesFile = dir.resolve("user-places.xbel");
+		Files.writeString(placesFile, XbelEditorBenchmark.generatePlaces(fileSizeKiB * 1024));
+		places = new DolphinPlaces(placesFile, DolphinPlaces.ValidationPolicy.FULL, durability);
+	}
+
+	@TearDown
+	public void teardown() throws IOException {
+		deleteRecursively(dir);
+	}
+
+	@Benchmark
+	public QuickAccessEntry add(AddedEntry added) throws QuickAccessServiceException {
+		return added.entry = places.add(TARGET, "Vault");
+	}
+
+	@Benchmark
+	public void remove(ExistingEntry existing) throws QuickAccessServiceException {
+		existing.entry.remove();
+	}
+
+	/**
+	 * Removes the entry added by the benchmark, so the file does not grow.
+	 */
+	@State(Scope.Thread)
+	public static class AddedEntry {
+
+		QuickAccessEntry entry;
+
+		@TearDown(Level.Invocation)
+		public void remove() throws QuickAccessServiceException {
+			entry.remove();
+		}
+	}
+
+	/**
+	 * Adds the entry to be removed by the benchmark.
+	 */
+	@State(Scope.Thread)
+	public static class ExistingEntry {
+
+		QuickAccessEntry entry;
+
+		@Setup(Level.Invocation)
+		public void add(DolphinPlacesBenchmark benchmark) throws QuickAccessServiceException {
+			entry = benchmark.places.add(TARGET, "Vault");
+		}
+	}
+
+	/**
+	 * @param fileSystem either {@code tmpfs} or {@code disk}
+	 * @return a new temporary directory on the given file system
+	 */
+	static Path createBenchmarkDir(String fileSystem) throws IOException {
+		var parent = switch (fileSystem) {
+			case "tmpfs" -> Path.of("/dev/shm");
+			case "disk" -> Files.createDirectories(Path.of("target"));
+			default -> throw new IllegalArgumentException("Unknown file system " + fileSystem);
+		};
+		return Files.createTempDirectory(parent, "quickaccess-benchmark");
+	}
+
+	static void deleteRecursively(Path dir) throws IOException {
+		try (var files = Files.walk(dir)) {
+			for (var file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+}
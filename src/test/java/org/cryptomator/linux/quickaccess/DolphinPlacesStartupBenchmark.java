@@ -0,0 +1,72 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the one-time cost of loading {@link DolphinPlaces} in a fresh JVM, as done by the {@link java.util.ServiceLoader} on every start,
+ * compared to the first modification of the places file, which now includes compiling the XBEL schema.
+ * <p>
+ * Each fork measures a single invocation, so the classes must not be referenced before the benchmark method runs.
+ */
+@State(Scope.Benchmark)
+@Fork(20)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1, batchSize = 1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DolphinPlacesStartupBenchmark {
+
+	private static final String CLASS_NAME = "org.cryptomator.linux.quickaccess.DolphinPlaces";
+
+	private Path dir;
+	private Path placesFile;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("dolphin-startup-benchmark");
+		placesFile = dir.resolve("user-places.xbel");
+		Files.writeString(placesFile, """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<!DOCTYPE xbel>
+				<xbel xmlns:bookmark="http://www.freedesktop.org/standards/desktop-bookmarks">
+				</xbel>
+				""");
+	}
+
+	@TearDown
+	public void teardown() throws IOException {
+		try (var files = Files.list(dir)) {
+			for (var file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	@Benchmark
+	public Object instantiate() throws ReflectiveOperationException {
+		return Class.forName(CLASS_NAME).getConstructor(Path.class).newInstance(placesFile);
+	}
+
+	@Benchmark
+	public Object instantiateAndAdd() throws Exception {
+		var places = (FileConfiguredQuickAccess) instantiate();
+		return places.add(Path.of("/home/someuser/vault"), "Vault");
+	}
+
+}
@@ -4,11 +4,23 @@ import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -88,6 +100,32 @@ public class DolphinPlacesTest {
 		assertEquals(1, countOccurrences(loadFile(pathToDoc), CAPTION_FOLDER_1));
 	}
 
+	@ParameterizedTest
+	@EnumSource(DolphinPlaces.ValidationPolicy.class)
+	@DisplayName("Adding should not replace if file is not valid, regardless of the validation policy")
+	public void addingShouldNotReplaceIfFileIsNotValidRegardlessOfPolicy(DolphinPlaces.ValidationPolicy policy, @TempDir Path tmpdir) {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES_NOT_VALID, tmpdir);
+		assertThrows(QuickAccessServiceException.class, () -> {
+			new DolphinPlaces(pathToDoc, policy).add(Path.of(PATH_FOLDER_1), CAPTION_FOLDER_1);
+		});
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), UUID_FOLDER_1));
+	}
+
+	@ParameterizedTest
+	@EnumSource(DolphinPlaces.ValidationPolicy.class)
+	@DisplayName("Entries can be added and removed with each validation policy")
+	public void entriesCanBeAddedAndRemovedWithEachPolicy(DolphinPlaces.ValidationPolicy policy, @TempDir Path tmpdir) throws QuickAccessServiceException {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc, policy);
+		var entry = dolphinPlaces.add(Path.of(PATH_FOLDER_1), "< & >");
+		dolphinPlaces.add(Path.of("/home/someuser/vault2"), "vault 2");
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "&lt; &amp; &gt;"));
+
+		entry.remove();
+		assertEquals(0, countOccurrences(loadFile(pathToDoc), "&lt; &amp; &gt;"));
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "vault 2"));
+	}
+
 	@Test
 	@DisplayName("Invalid characters in caption should be escaped")
 	public void invalidCharactersInCaptionShouldBeEscaped(@TempDir Path tmpdir) {
@@ -118,6 +156,275 @@ public class DolphinPlacesTest {
 		assertEquals(rootObject, file.substring(0,rootObject.length()), "Root object of the XML file should not be changed when adding an entry");
 	}
 
+	@Test
+	@DisplayName("New entries are indented like the existing ones, even if the file starts with a bookmark")
+	public void newEntriesAreIndentedLikeExistingOnes(@TempDir Path tmpdir) throws IOException, QuickAccessServiceException {
+		var pathToDoc = tmpdir.resolve("user-places.xbel");
+		Files.writeString(pathToDoc, """
+				<?xml version="1.0" encoding="UTF-8"?>
+				<!DOCTYPE xbel>
+				<xbel xmlns:bookmark="http://www.freedesktop.org/standards/desktop-bookmarks">
+				  <bookmark href="file:///home/someuser/Documents">
+				    <title>Documents</title>
+				  </bookmark>
+				</xbel>
+				""");
+
+		new DolphinPlaces(pathToDoc).add(Path.of(PATH_FOLDER_1), "my-caption");
+		var content = loadFile(pathToDoc);
+		assertTrue(content.contains("\n  <bookmark href=\"" + Path.of(PATH_FOLDER_1).toUri() + "\">"), content);
+		assertTrue(content.contains("\n    <title>my-caption</title>"), content);
+	}
+
+	@Test
+	@DisplayName("External modifications between two operations are not overwritten")
+	public void externalModificationsBetweenOperationsAreNotOverwritten(@TempDir Path tmpdir) throws IOException, QuickAccessServiceException {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var entry = new DolphinPlaces(pathToDoc).add(Path.of(PATH_FOLDER_1), "my-caption");
+		var modified = loadFile(pathToDoc).replace("</xbel>", "<bookmark href=\"file:///home/someuser/external\"><title>external</title></bookmark></xbel>");
+		Files.writeString(pathToDoc, modified);
+
+		entry.remove();
+		assertEquals(0, countOccurrences(loadFile(pathToDoc), "my-caption"));
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "file:///home/someuser/external"));
+	}
+
+	@Test
+	@DisplayName("Asynchronous changes are applied together")
+	public void asynchronousChangesAreAppliedTogether(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc, DolphinPlaces.ValidationPolicy.FULL, Durability.FSYNC); // forces once per write
+		var first = dolphinPlaces.addAsync(Path.of("/home/someuser/vault1"), "vault 1");
+		var second = dolphinPlaces.addAsync(Path.of("/home/someuser/vault2"), "vault 2");
+
+		var firstEntry = first.get(1, TimeUnit.SECONDS);
+		second.get(1, TimeUnit.SECONDS);
+		assertEquals(1, dolphinPlaces.getForceLatencies().getCount(), "both changes should be written at once");
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "vault 1"));
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "vault 2"));
+
+		dolphinPlaces.removeAsync(firstEntry).get(1, TimeUnit.SECONDS);
+		assertEquals(0, countOccurrences(loadFile(pathToDoc), "vault 1"));
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "vault 2"));
+	}
+
+	@Test
+	@DisplayName("Concurrent modifications by multiple instances are not lost")
+	public void concurrentModificationsByMultipleInstancesAreNotLost(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			var first = executor.submit(() -> new DolphinPlaces(pathToDoc).add(Path.of("/home/someuser/vault1"), "vault 1"));
+			var second = executor.submit(() -> new DolphinPlaces(pathToDoc).add(Path.of("/home/someuser/vault2"), "vault 2"));
+			first.get(10, TimeUnit.SECONDS);
+			second.get(10, TimeUnit.SECONDS);
+		}
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "vault 1"));
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "vault 2"));
+	}
+
+	@Test
+	@DisplayName("Replacing the file by another program between reading and writing it is detected and retried")
+	public void externalReplacementBetweenReadingAndWritingIsRetried(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var replaced = new AtomicBoolean();
+		var dolphinPlaces = new DolphinPlaces(pathToDoc) {
+			@Override
+			EntryAndConfig addEntryToConfig(String config, Path target, String displayName) throws QuickAccessServiceException {
+				if (replaced.compareAndSet(false, true)) { // e.g. Dolphin saving its places, unaware of our lock file
+					try {
+						var external = Files.writeString(tmpdir.resolve("external.xbel"), config.replace("</xbel>", "<bookmark href=\"file:///home/someuser/external\"><title>external</title></bookmark></xbel>"));
+						Files.move(external, pathToDoc, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return super.addEntryToConfig(config, target, displayName);
+			}
+		};
+
+		dolphinPlaces.add(Path.of(PATH_FOLDER_1), "my-caption");
+		assertEquals(1, dolphinPlaces.getWriteConflictCount());
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "my-caption"));
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "file:///home/someuser/external"));
+	}
+
+	@Test
+	@DisplayName("Multiple places files can be edited in parallel")
+	public void multiplePlacesFilesCanBeEditedInParallel(@TempDir Path tmpdir) throws Exception {
+		var futures = new ArrayList<Future<?>>();
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 8; i++) {
+				var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, Files.createDirectory(tmpdir.resolve("user" + i)));
+				futures.add(executor.submit(() -> {
+					new DolphinPlaces(pathToDoc).add(Path.of(PATH_FOLDER_1), "my-caption").remove();
+					return null;
+				}));
+			}
+			for (var future : futures) {
+				assertDoesNotThrow(() -> future.get(10, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Reconciling restores live entries and removes orphaned ones")
+	public void reconcilingRestoresLiveEntriesAndRemovesOrphanedOnes(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var original = loadFile(pathToDoc);
+		var vault = Files.createDirectory(tmpdir.resolve("vault"));
+		var dolphinPlaces = new DolphinPlaces(pathToDoc);
+		dolphinPlaces.add(vault, "my-vault");
+		Files.writeString(pathToDoc, original); // e.g. overwritten by Dolphin
+
+		dolphinPlaces.reconcile();
+		var reconciled = loadFile(pathToDoc);
+		assertEquals(1, countOccurrences(reconciled, "my-vault"));
+		assertEquals(0, countOccurrences(reconciled, UUID_FOLDER_1), "orphaned entry of Cryptomator should be removed");
+		assertEquals(1, countOccurrences(reconciled, "folder 3"), "entries of other apps should be kept");
+	}
+
+	@ParameterizedTest
+	@EnumSource(Durability.class)
+	@DisplayName("Bulk changes and reconciling work with each durability")
+	public void bulkChangesAndReconcilingWorkWithEachDurability(Durability durability, @TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var original = loadFile(pathToDoc);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc, DolphinPlaces.ValidationPolicy.FULL, durability);
+		var targets = new LinkedHashMap<Path, String>();
+		targets.put(Files.createDirectory(tmpdir.resolve("vault1")), "vault-1");
+		targets.put(Files.createDirectory(tmpdir.resolve("vault2")), "vault-2");
+		var entries = dolphinPlaces.addAll(targets);
+		Files.writeString(pathToDoc, original); // e.g. overwritten by Dolphin
+
+		dolphinPlaces.reconcile();
+		var reconciled = loadFile(pathToDoc);
+		assertEquals(1, countOccurrences(reconciled, "vault-1"));
+		assertEquals(1, countOccurrences(reconciled, "vault-2"));
+
+		dolphinPlaces.removeAll(entries);
+		var config = loadFile(pathToDoc);
+		assertEquals(0, countOccurrences(config, "vault-1"));
+		assertEquals(0, countOccurrences(config, "vault-2"));
+	}
+
+	@Test
+	@DisplayName("External modifications are reconciled in the background")
+	public void externalModificationsAreReconciledInTheBackground(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var original = loadFile(pathToDoc);
+		var vault = Files.createDirectory(tmpdir.resolve("vault"));
+		var reconciliations = new Semaphore(0);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc) {
+			@Override
+			void reconcile() throws IOException, QuickAccessServiceException {
+				super.reconcile();
+				reconciliations.release();
+			}
+		};
+		dolphinPlaces.add(vault, "my-vault");
+
+		try (var _ = dolphinPlaces.startReconciling(Duration.ofMillis(10))) {
+			Files.writeString(pathToDoc, original);
+			do {
+				assertTrue(reconciliations.tryAcquire(10, TimeUnit.SECONDS), "external modification should trigger reconciliation");
+			} while (countOccurrences(loadFile(pathToDoc), "my-vault") == 0);
+		}
+		assertEquals(1, countOccurrences(loadFile(pathToDoc), "my-vault"));
+	}
+
+	@Test
+	@DisplayName("Repeatedly adding and removing an entry does not grow the file")
+	public void repeatedlyAddingAndRemovingDoesNotGrowTheFile(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc);
+		dolphinPlaces.add(Path.of("/home/someuser/vault"), "my-vault").remove();
+		var afterFirstRemoval = loadFile(pathToDoc);
+
+		dolphinPlaces.add(Path.of("/home/someuser/vault"), "my-vault").remove();
+		assertEquals(afterFirstRemoval, loadFile(pathToDoc));
+	}
+
+	@Test
+	@DisplayName("Adding an entry leaves the existing bookmarks untouched, including empty elements")
+	public void addingAnEntryPreservesFormatting(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var original = loadFile(pathToDoc);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc);
+		dolphinPlaces.add(Path.of("/home/someuser/vault"), "my-vault");
+
+		var afterAdding = loadFile(pathToDoc);
+		var withoutAdded = Pattern.compile("\\s*<bookmark href=\"file:///home/someuser/vault/?\">.*?</bookmark>", Pattern.DOTALL).matcher(afterAdding).replaceFirst("");
+		assertNotEquals(afterAdding, withoutAdded);
+		assertEquals(original.substring(original.indexOf("<bookmark ")).stripTrailing(), withoutAdded.substring(withoutAdded.indexOf("<bookmark "))); // line breaks within tags are not kept
+	}
+
+	@ParameterizedTest
+	@EnumSource(DolphinPlaces.ValidationPolicy.class)
+	@DisplayName("Only FULL validates a places file last written by the same instance again")
+	public void placesFileWrittenByUsIsValidatedAgainOnlyWithFull(DolphinPlaces.ValidationPolicy policy, @TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc, policy);
+
+		dolphinPlaces.add(Path.of("/home/someuser/vault1"), "vault-1");
+		dolphinPlaces.add(Path.of("/home/someuser/vault2"), "vault-2"); // the places file is unchanged since the first add
+		assertEquals(policy == DolphinPlaces.ValidationPolicy.FULL ? 2 : 1, dolphinPlaces.getInputValidationCount());
+	}
+
+	@Test
+	@DisplayName("Removing an entry leaves the formatting of the rest of the file untouched")
+	public void removingAnEntryPreservesFormatting(@TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc);
+		var entry = dolphinPlaces.add(Path.of("/home/someuser/vault"), "my-vault");
+		var afterAdding = loadFile(pathToDoc);
+
+		entry.remove();
+		var expected = Pattern.compile("\\s*<bookmark href=\"file:///home/someuser/vault/?\">.*?</bookmark>", Pattern.DOTALL).matcher(afterAdding).replaceFirst("");
+		assertNotEquals(afterAdding, expected);
+		assertEquals(expected, loadFile(pathToDoc));
+	}
+
+	@ParameterizedTest
+	@EnumSource(DolphinPlaces.ValidationPolicy.class)
+	@DisplayName("Multiple entries are added at once and can be removed individually")
+	public void multipleEntriesCanBeAddedAtOnce(DolphinPlaces.ValidationPolicy policy, @TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc, policy);
+		var targets = new LinkedHashMap<Path, String>();
+		targets.put(Path.of(PATH_FOLDER_1), "vault-1"); // replaces the existing entry of Cryptomator
+		targets.put(Path.of("/home/someuser/vault2"), "vault-2");
+
+		var entries = dolphinPlaces.addAll(targets);
+		var config = loadFile(pathToDoc);
+		assertEquals(2, entries.size());
+		assertEquals(0, countOccurrences(config, UUID_FOLDER_1));
+		assertEquals(1, countOccurrences(config, "vault-1"));
+		assertEquals(1, countOccurrences(config, "vault-2"));
+
+		entries.getFirst().remove();
+		config = loadFile(pathToDoc);
+		assertEquals(0, countOccurrences(config, "vault-1"));
+		assertEquals(1, countOccurrences(config, "vault-2"));
+	}
+
+	@ParameterizedTest
+	@EnumSource(DolphinPlaces.ValidationPolicy.class)
+	@DisplayName("Multiple entries are removed at once")
+	public void multipleEntriesCanBeRemovedAtOnce(DolphinPlaces.ValidationPolicy policy, @TempDir Path tmpdir) throws Exception {
+		var pathToDoc = loadResourceToDir(RESOURCE_USER_PLACES, tmpdir);
+		var original = loadFile(pathToDoc);
+		var dolphinPlaces = new DolphinPlaces(pathToDoc, policy);
+		var targets = new LinkedHashMap<Path, String>();
+		targets.put(Path.of("/home/someuser/vault1"), "vault-1");
+		targets.put(Path.of("/home/someuser/vault2"), "vault-2");
+		var entries = dolphinPlaces.addAll(targets);
+
+		dolphinPlaces.removeAll(entries);
+		var config = loadFile(pathToDoc);
+		assertEquals(0, countOccurrences(config, "vault-1"));
+		assertEquals(0, countOccurrences(config, "vault-2"));
+		assertEquals(original.substring(original.indexOf("<bookmark ")).stripTrailing(), config.substring(config.indexOf("<bookmark ")));
+	}
 
 	private Path loadResourceToDir(String source, Path targetDir)  {
 		try (var stream = this.getClass().getClassLoader().getResourceAsStream(source)) {
@@ -0,0 +1,67 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares adding and removing a bookmark using the line-indexed {@link GtkBookmarksFile} with the former string based implementation,
+ * which concatenated the whole file on add and scanned every line on remove.
+ * <p>
+ * Only the modification of the in-memory model is measured. Serializing the content to write the file is linear in both cases.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GtkBookmarksFileBenchmark {
+
+	private static final String ENTRY_LINE = "file:///home/someuser/vault Vault";
+
+	@Param({"10", "100", "1000", "10000"})
+	private int userBookmarks;
+
+	private String config;
+	private GtkBookmarksFile model;
+
+	@Setup
+	public void setup() {
+		var sb = new StringBuilder();
+		for (int i = 0; i < userBookmarks; i++) {
+			sb.append("file:///home/someuser/folder").append(i).append(" Folder ").append(i).append('\n');
+		}
+		config = sb.toString();
+		model = GtkBookmarksFile.parse(config);
+	}
+
+	@Benchmark
+	public GtkBookmarksFile indexed() {
+		var line = model.append(ENTRY_LINE);
+		model.remove(line);
+		return model;
+	}
+
+	@Benchmark
+	public String stringBased() {
+		var added = config.stripTrailing() + "\n" + ENTRY_LINE;
+		return added.lines() //
+				.map(l -> l.equals(ENTRY_LINE) ? null : l) //
+				.filter(Objects::nonNull) //
+				.collect(Collectors.joining("\n"));
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.quickaccess.QuickAccessService.QuickAccessEntry;
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding and removing a bookmark end-to-end for GTK bookmarks files with different numbers of user bookmarks.
+ * Larger files exceed the default in-memory limit and are processed line by line.
+ *
+ * @see DolphinPlacesBenchmark
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NautilusBookmarksBenchmark {
+
+	private static final Path TARGET = Path.of("/home/someuser/vault");
+
+	@Param({"10", "100", "1000", "10000"})
+	private int userBookmarks;
+
+	@Param({"tmpfs", "disk"})
+	private String fileSystem;
+
+	@Param({"NONE", "FSYNC"})
+	private Durability durability;
+
+	private Path dir;
+	private NautilusBookmarks bookmarks;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = DolphinPlacesBenchmark.createBenchmarkDir(fileSystem);
+		var bookmarksFile = dir.resolve("bookmarks");
+		var sb = new StringBuilder();
+		for (int i = 0; i < userBookmarks; i++) {
+			sb.append("file:///home/someuser/folder").append(i).append(" Folder ").append(i).append('\n');
+		}
+		Files.writeString(bookmarksFile, sb);
+		bookmarks = new NautilusBookmarks(bookmarksFile, 4096, durability);
+	}
+
+	@TearDown
+	public void teardown() throws IOException {
+		DolphinPlacesBenchmark.deleteRecursively(dir);
+	}
+
+	@Benchmark
+	public QuickAccessEntry add(AddedEntry added) throws QuickAccessServiceException {
+		return added.entry = bookmarks.add(TARGET, "Vault");
+	}
+
+	@Benchmark
+	public void remove(ExistingEntry existing) throws QuickAccessServiceException {
+		existing.entry.remove();
+	}
+
+	@State(Scope.Thread)
+	public static class AddedEntry {
+
+		QuickAccessEntry entry;
+
+		@TearDown(Level.Invocation)
+		public void remove() throws QuickAccessServiceException {
+			entry.remove();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ExistingEntry {
+
+		QuickAccessEntry entry;
+
+		@Setup(Level.Invocation)
+		public void add(NautilusBookmarksBenchmark benchmark) throws QuickAccessServiceException {
+			entry = benchmark.bookmarks.add(TARGET, "Vault");
+		}
+	}
+
+}
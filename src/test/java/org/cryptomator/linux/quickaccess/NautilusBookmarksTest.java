@@ -0,0 +1,229 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.cryptomator.integrations.quickaccess.QuickAccessServiceException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class NautilusBookmarksTest {
+
+	private static final String USER_BOOKMARKS = """
+			file:///home/someuser/Documents
+			file:///home/someuser/Music Music
+			""";
+
+	@TempDir
+	private Path tmpDir;
+	private Path bookmarksFile;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		bookmarksFile = tmpDir.resolve("bookmarks");
+		Files.writeString(bookmarksFile, USER_BOOKMARKS);
+	}
+
+	@Test
+	@DisplayName("Adding and removing an entry restores the original file")
+	public void testAddAndRemove() throws QuickAccessServiceException, IOException {
+		var entry = new NautilusBookmarks(bookmarksFile).add(Path.of("/home/someuser/my vault"), "Vault");
+		Assertions.assertEquals(USER_BOOKMARKS + "file:///home/someuser/my%20vault Vault\n", Files.readString(bookmarksFile));
+
+		entry.remove();
+		Assertions.assertEquals(USER_BOOKMARKS, Files.readString(bookmarksFile));
+	}
+
+	@Test
+	@DisplayName("Entries are removed by identity, leaving other entries for the same target")
+	public void testRemoveByIdentity() throws QuickAccessServiceException, IOException {
+		var bookmarks = new NautilusBookmarks(bookmarksFile);
+		var first = bookmarks.add(Path.of("/home/someuser/vault"), "Vault");
+		bookmarks.add(Path.of("/home/someuser/vault"), "Vault");
+
+		first.remove();
+		Assertions.assertEquals(USER_BOOKMARKS + "file:///home/someuser/vault Vault\n", Files.readString(bookmarksFile));
+	}
+
+	@Test
+	@DisplayName("Entries are found after the file was modified externally")
+	public void testRemoveAfterExternalModification() throws QuickAccessServiceException, IOException {
+		var entry = new NautilusBookmarks(bookmarksFile).add(Path.of("/home/someuser/vault"), "Vault");
+		Files.writeString(bookmarksFile, "file:///home/someuser/Pictures\n", StandardOpenOption.APPEND);
+
+		entry.remove();
+		Assertions.assertEquals(USER_BOOKMARKS + "file:///home/someuser/Pictures\n", Files.readString(bookmarksFile));
+	}
+
+	@Test
+	@DisplayName("Files exceeding the in-memory limit are processed line by line")
+	public void testStreaming() throws QuickAccessServiceException, IOException {
+		var largeBookmarks = new StringBuilder(USER_BOOKMARKS);
+		for (int i = 0; i < 1000; i++) {
+			largeBookmarks.append("file:///home/someuser/folder").append(i).append('\n');
+		}
+		Files.writeString(bookmarksFile, largeBookmarks + "\n\n");
+		var bookmarks = new NautilusBookmarks(bookmarksFile, 1024);
+
+		var entry = bookmarks.add(Path.of("/home/someuser/vault"), "Vault");
+		Assertions.assertEquals(largeBookmarks + "file:///home/someuser/vault Vault\n", Files.readString(bookmarksFile));
+
+		entry.remove();
+		Assertions.assertEquals(largeBookmarks.toString(), Files.readString(bookmarksFile));
+	}
+
+	@Test
+	@DisplayName("Reconciling a file exceeding the in-memory limit does not fail concurrent changes")
+	public void testReconcileLargeFileWithConcurrentAdds() throws Exception {
+		var largeBookmarks = new StringBuilder(USER_BOOKMARKS);
+		for (int i = 0; i < 1000; i++) {
+			largeBookmarks.append("file:///home/someuser/folder").append(i).append('\n');
+		}
+		Files.writeString(bookmarksFile, largeBookmarks);
+		var bookmarks = new NautilusBookmarks(bookmarksFile, 1024, Durability.GROUP_COMMIT);
+
+		var futures = new ArrayList<Future<?>>();
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 20; i++) {
+				var target = Path.of("/home/someuser/vault" + i);
+				futures.add(executor.submit(() -> bookmarks.add(target, "Vault")));
+				futures.add(executor.submit(() -> {
+					bookmarks.reconcile();
+					return null;
+				}));
+			}
+		}
+
+		for (var future : futures) {
+			Assertions.assertDoesNotThrow(() -> future.get());
+		}
+		var content = Files.readString(bookmarksFile);
+		for (int i = 0; i < 20; i++) {
+			Assertions.assertTrue(content.contains("file:///home/someuser/vault" + i + " Vault\n"));
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {4096, 64})
+	@DisplayName("Multiple entries are added at once, in memory and line by line")
+	public void testAddAll(int inMemoryLimit) throws QuickAccessServiceException, IOException {
+		var bookmarks = new NautilusBookmarks(bookmarksFile, inMemoryLimit);
+		var targets = new LinkedHashMap<Path, String>();
+		targets.put(Path.of("/home/someuser/vault1"), "Vault 1");
+		targets.put(Path.of("/home/someuser/vault2"), "Vault 2");
+
+		var entries = bookmarks.addAll(targets);
+		Assertions.assertEquals(USER_BOOKMARKS + "file:///home/someuser/vault1 Vault 1\nfile:///home/someuser/vault2 Vault 2\n", Files.readString(bookmarksFile));
+
+		entries.getFirst().remove();
+		Assertions.assertEquals(USER_BOOKMARKS + "file:///home/someuser/vault2 Vault 2\n", Files.readString(bookmarksFile));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {4096, 64})
+	@DisplayName("Multiple entries are removed at once, in memory and line by line")
+	public void testRemoveAll(int inMemoryLimit) throws QuickAccessServiceException, IOException {
+		var bookmarks = new NautilusBookmarks(bookmarksFile, inMemoryLimit);
+		var targets = new LinkedHashMap<Path, String>();
+		for (int i = 0; i < 3; i++) {
+			targets.put(Path.of("/home/someuser/vault" + i), "Vault " + i);
+		}
+		var entries = bookmarks.addAll(targets);
+		entries.getFirst().remove(); // already removed entries are skipped
+		var commits = bookmarks.getCommitLatencies().getCount();
+
+		bookmarks.removeAll(entries);
+		Assertions.assertEquals(USER_BOOKMARKS, Files.readString(bookmarksFile));
+		Assertions.assertEquals(commits + 1, bookmarks.getCommitLatencies().getCount());
+	}
+
+	@Test
+	@DisplayName("Removing entries of another service at once is rejected")
+	public void testRemoveAllForeignEntry() throws QuickAccessServiceException {
+		var entry = new NautilusBookmarks(bookmarksFile).add(Path.of("/home/someuser/vault"), "Vault");
+		var other = new NautilusBookmarks(bookmarksFile);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> other.removeAll(List.of(entry)));
+	}
+
+	@Test
+	@DisplayName("Instances for the same file exclude each other in-process instead of spinning on the file lock")
+	public void testInstancesForSameFileShareLock() throws Exception {
+		var first = new NautilusBookmarks(bookmarksFile);
+		var second = new NautilusBookmarks(bookmarksFile);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 20; i++) {
+				var target = Path.of("/home/someuser/vault" + i);
+				var bookmarks = i % 2 == 0 ? first : second;
+				executor.submit(() -> bookmarks.add(target, "Vault"));
+			}
+		}
+
+		var content = Files.readString(bookmarksFile);
+		for (int i = 0; i < 20; i++) {
+			Assertions.assertTrue(content.contains("file:///home/someuser/vault" + i + " Vault\n"));
+		}
+		Assertions.assertEquals(0, first.getLockContentionCount() + second.getLockContentionCount());
+	}
+
+	@ParameterizedTest
+	@EnumSource(Durability.class)
+	@DisplayName("Bulk changes and reconciling work with each durability")
+	public void testBulkChangesAndReconcileWithDurability(Durability durability) throws Exception {
+		var bookmarks = new NautilusBookmarks(bookmarksFile, 4096, durability);
+		var vault1 = Files.createDirectory(tmpDir.resolve("vault1"));
+		var vault2 = Files.createDirectory(tmpDir.resolve("vault2"));
+		var targets = new LinkedHashMap<Path, String>();
+		targets.put(vault1, "Vault 1");
+		targets.put(vault2, "Vault 2");
+		var entries = bookmarks.addAll(targets);
+		Files.writeString(bookmarksFile, USER_BOOKMARKS); // e.g. overwritten by Nautilus
+
+		bookmarks.reconcile();
+		var reconciled = Files.readString(bookmarksFile);
+		Assertions.assertTrue(reconciled.contains("file://" + vault1 + " Vault 1\n"));
+		Assertions.assertTrue(reconciled.contains("file://" + vault2 + " Vault 2\n"));
+
+		bookmarks.removeAll(entries);
+		Assertions.assertEquals(USER_BOOKMARKS, Files.readString(bookmarksFile));
+	}
+
+	@ParameterizedTest
+	@EnumSource(Durability.class)
+	@DisplayName("Concurrent entries are persisted with each durability")
+	public void testConcurrentAddsWithDurability(Durability durability) throws Exception {
+		var bookmarks = new NautilusBookmarks(bookmarksFile, 4096, durability);
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 20; i++) {
+				var target = Path.of("/home/someuser/vault" + i);
+				executor.submit(() -> bookmarks.add(target, "Vault"));
+			}
+		}
+
+		var content = Files.readString(bookmarksFile);
+		for (int i = 0; i < 20; i++) {
+			Assertions.assertTrue(content.contains("file:///home/someuser/vault" + i + " Vault\n"));
+		}
+		Assertions.assertEquals(20, bookmarks.getCommitLatencies().getCount());
+		var forces = bookmarks.getForceLatencies().getCount();
+		switch (durability) {
+			case NONE -> Assertions.assertEquals(0, forces);
+			case FSYNC -> Assertions.assertEquals(20, forces);
+			case GROUP_COMMIT -> Assertions.assertTrue(forces >= 1 && forces <= 20);
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.cryptomator.linux.quickaccess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares adding a bookmark with the streaming {@link XbelEditor} to the former DOM based implementation
+ * (parse, XPath, modify, serialize), which is kept here as baseline. Schema validation is excluded, since it is the same for both.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XbelEditorBenchmark {
+
+	private static final Path TARGET = Path.of("/home/someuser/vault");
+
+	@Param({"10", "100", "1000"})
+	private int fileSizeKiB;
+
+	private String config;
+
+	@Setup
+	public void setup() {
+		config = generatePlaces(fileSizeKiB * 1024);
+	}
+
+	@Benchmark
+	public String streaming() throws Exception {
+		return XbelEditor.addBookmarks(config, List.of(new XbelEditor.NewBookmark(TARGET, "Vault", UUID.randomUUID().toString())));
+	}
+
+	@Benchmark
+	public String dom() throws Exception {
+		var builderFactory = DocumentBuilderFactory.newInstance();
+		builderFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		builderFactory.setNamespaceAware(true);
+		var builder = builderFactory.newDocumentBuilder();
+		Document document = builder.parse(new InputSource(new StringReader(config)));
+
+		var xpath = XPathFactory.newInstance().newXPath();
+		xpath.setXPathVariableResolver(v -> v.equals(new QName("uri")) ? TARGET.toUri().toString() : null);
+		var stale = (NodeList) xpath.compile("/xbel/bookmark[info/metadata[@owner='https://cryptomator.org']][@href=$uri]").evaluate(document, XPathConstants.NODESET);
+		for (int i = stale.getLength() - 1; i >= 0; i--) {
+			var node = stale.item(i);
+			node.getParentNode().removeChild(node);
+		}
+
+		var bookmark = document.createElement("bookmark");
+		bookmark.setAttribute("href", TARGET.toUri().toString());
+		var title = document.createElement("title");
+		title.setTextContent("Vault");
+		bookmark.appendChild(title);
+		var info = document.createElement("info");
+		var metadataBookmark = document.createElement("metadata");
+		metadataBookmark.setAttribute("owner", "http://freedesktop.org");
+		var icon = document.createElementNS(XbelEditor.XBEL_NAMESPACE, "bookmark:icon");
+		icon.setAttribute("name", "drive-harddisk-encrypted");
+		metadataBookmark.appendChild(icon);
+		var metadataOwner = document.createElement("metadata");
+		metadataOwner.setAttribute("owner", XbelEditor.CRYPTOMATOR_OWNER);
+		var id = document.createElement("id");
+		id.setTextContent(UUID.randomUUID().toString());
+		metadataOwner.appendChild(id);
+		info.appendChild(metadataBookmark);
+		info.appendChild(metadataOwner);
+		bookmark.appendChild(info);
+		document.getDocumentElement().appendChild(bookmark);
+
+		var transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+		var buf = new StringWriter();
+		transformer.transform(new DOMSource(document), new StreamResult(buf));
+		return buf.toString();
+	}
+
+	/**
+	 * Generates a valid XBEL document of roughly the given size, consisting of bookmarks of which every tenth is owned by Cryptomator.
+	 *
+	 * @param size approximate size in bytes
+	 * @return the XBEL document
+	 */
+	static String generatePlaces(int size) {
+		var sb = new StringBuilder(size + 1024);
+		sb.append("""
+				<?xml version="1.0" encoding="UTF-8"?>
+				<!DOCTYPE xbel>
+				<xbel xmlns:bookmark="http://www.freedesktop.org/standards/desktop-bookmarks" xmlns:kdepriv="http://www.kde.org/kdepriv" xmlns:mime="http://www.freedesktop.org/standards/shared-mime-info">
+				""");
+		for (int i = 0; sb.length() < size; i++) {
+			var owner = i % 10 == 0 ? XbelEditor.CRYPTOMATOR_OWNER : "http://www.kde.org";
+			sb.append("""
+					 <bookmark href="file:///home/someuser/folder%d">
+					  <title>folder %d</title>
+					  <info>
+					   <metadata owner="http://freedesktop.org">
+					    <bookmark:icon name="folder"/>
+					   </metadata>
+					   <metadata owner="%s">
+					    <id>%s</id>
+					   </metadata>
+					  </info>
+					 </bookmark>
+					""".formatted(i, i, owner, UUID.randomUUID()));
+		}
+		sb.append("</xbel>\n");
+		return sb.toString();
+	}
+
+}